@@ -0,0 +1,274 @@
+package boaexample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OpponentModel;
+import genius.core.utility.AdditiveUtilitySpace;
+import group10.BidCodec;
+import group10.CompiledEvaluator;
+import group10.ConcessionSchedule;
+import group10.Fixture;
+import group10.OutcomeIndex;
+
+/**
+ * Checks that the indexed searches of {@link TimeDependent_Offering} pick
+ * exactly what the code they replace picks, on the domains of the templates:
+ * the {@link ConcessionSchedule} against a search of the whole outcome index,
+ * and {@link IndexedBestBid} against {@link BestBid} scoring every bid of the
+ * window. Windows are widened as TimeDependent_Offering does.
+ *
+ * IndexedBestBid is checked with two models: the
+ * {@link HardHeadedFrequencyModel}, learning from a simulated opponent on
+ * every turn as in a session, so its blocks are scored from value indices and
+ * refreshed on every turn, and a model with random scores which changes every
+ * few turns, so some turns reuse the scores of the blocks. Run from the
+ * project directory:
+ *
+ * <pre>
+ *     java -cp out:genius-9.1.2.jar boaexample.IndexedSearchCheck
+ * </pre>
+ *
+ * It prints the number of mismatches per domain and exits with status 1 if
+ * there is any.
+ */
+public class IndexedSearchCheck {
+
+	/** Concession factors of the checked schedules */
+	private static final double[] CONCESSIONS = { 0.02, 0.2, 1, 2, 50 };
+	/**
+	 * Number of turns per schedule, and turns between two changes of the
+	 * random model
+	 */
+	private static final int TURNS = 2000;
+	private static final int TURNS_PER_MODEL = 7;
+	/** Probability that the simulated opponent changes the value of an issue */
+	private static final double CHANGE_PROBABILITY = 0.2;
+	/** Number of arbitrary windows checked on IndexedBestBid */
+	private static final int WINDOWS = 2000;
+
+	/**
+	 * Changes the opponent model as between two turns of a session
+	 */
+	interface ModelChange {
+		void next(Random random);
+	}
+
+	/**
+	 * Opponent model scoring bids with random weights and value scores
+	 */
+	static class RandomModel extends OpponentModel {
+		private final BidCodec codec;
+		private final CompiledEvaluator evaluator;
+		private final int[] values;
+
+		RandomModel(BidCodec codec) {
+			this.codec = codec;
+			this.evaluator = new CompiledEvaluator(codec.getNumbersOfValues());
+			this.values = new int[codec.getNumberOfIssues()];
+		}
+
+		/**
+		 * Draws new weights and scores, some values share a score so there
+		 * are ties between bids
+		 */
+		void randomize(Random random) {
+			for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+				evaluator.setWeight(i, 0.1 + random.nextInt(10) / 10.0);
+				for (int v = 0; v < codec.getNumberOfValues(i); v++) {
+					evaluator.setScore(i, v, 0.1 + random.nextInt(4) / 4.0);
+				}
+			}
+		}
+
+		@Override
+		public double getBidEvaluation(Bid bid) {
+			return evaluator.getUtility(codec.encode(bid, values));
+		}
+
+		@Override
+		public void updateModel(Bid bid, double time) {
+		}
+
+		@Override
+		public String getName() {
+			return "Random model";
+		}
+	}
+
+	/**
+	 * IndexedBestBid whose model version is set by the check
+	 */
+	static class CheckedBestBid extends IndexedBestBid {
+		private long version;
+
+		CheckedBestBid(OutcomeIndex outcomes, OpponentModel model) {
+			this.model = model;
+			initBlocks(outcomes);
+		}
+
+		@Override
+		protected long getModelVersion() {
+			return version;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int failures = 0;
+		for (Fixture fixture : Fixture.loadDefaults()) {
+			if (!fixture.isAdditive()) {
+				continue;
+			}
+			OutcomeIndex outcomes = OutcomeIndex.get((AdditiveUtilitySpace) fixture.getSpace());
+			int hardHeaded = checkHardHeaded(fixture, outcomes, new Random(42));
+			int random = checkRandom(outcomes, new Random(42));
+			System.out.println(fixture.getName() + ": " + outcomes.size() + " outcomes, " + hardHeaded
+					+ " mismatches with the HardHeaded model, " + random + " with the random model");
+			failures += hardHeaded + random;
+		}
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Checks with a {@link HardHeadedFrequencyModel} learning from a
+	 * simulated opponent, which changes some values of its last bid on every
+	 * turn
+	 *
+	 * @return the number of mismatches
+	 */
+	static int checkHardHeaded(Fixture fixture, final OutcomeIndex outcomes, Random random) {
+		final HardHeadedFrequencyModel model = new HardHeadedFrequencyModel();
+		model.init((AdditiveUtilitySpace) fixture.getSpace().copy(), 0.2);
+		final BidCodec codec = outcomes.getCodec();
+		final int[] values = codec.randomBid(random, new int[codec.getNumberOfIssues()]);
+		IndexedBestBid indexed = new IndexedBestBid() {
+			{
+				this.model = model;
+				initBlocks(outcomes);
+			}
+		};
+		return check(outcomes, model, indexed, new ModelChange() {
+			private Bid previous = codec.decode(values);
+
+			@Override
+			public void next(Random random) {
+				for (int i = 0; i < values.length; i++) {
+					if (random.nextDouble() < CHANGE_PROBABILITY) {
+						values[i] = random.nextInt(codec.getNumberOfValues(i));
+					}
+				}
+				Bid bid = codec.decode(values);
+				model.update(bid, previous);
+				previous = bid;
+			}
+		}, random);
+	}
+
+	/**
+	 * Checks with a model of random scores, which changes every
+	 * {@link #TURNS_PER_MODEL} turns
+	 *
+	 * @return the number of mismatches
+	 */
+	static int checkRandom(OutcomeIndex outcomes, Random random) {
+		final RandomModel model = new RandomModel(outcomes.getCodec());
+		final CheckedBestBid indexed = new CheckedBestBid(outcomes, model);
+		return check(outcomes, model, indexed, new ModelChange() {
+			private int turn;
+
+			@Override
+			public void next(Random random) {
+				if (turn++ % TURNS_PER_MODEL == 0) {
+					model.randomize(random);
+					indexed.version++;
+				}
+			}
+		}, random);
+	}
+
+	/**
+	 * @return the number of turns and windows where the indexed searches did
+	 *         not pick the same as the full ones
+	 */
+	static int check(OutcomeIndex outcomes, final OpponentModel model, IndexedBestBid indexed, ModelChange change,
+			Random random) {
+		BestBid linear = new BestBid() {
+			{
+				this.model = model;
+			}
+		};
+		double pmax = outcomes.getUtility(0);
+		double pmin = outcomes.getUtility(outcomes.size() - 1);
+		int mismatches = 0;
+
+		for (final double e : CONCESSIONS) {
+			final double min = pmin;
+			final double range = pmax - pmin;
+			ConcessionSchedule schedule = new ConcessionSchedule(outcomes,
+					TimeDependent_Offering.SCHEDULE_BUCKETS, TimeDependent_Offering.SCHEDULE_MARGIN,
+					TimeDependent_Offering.SCHEDULE_SPAN) {
+				@Override
+				protected double target(double time) {
+					return min + range * (1 - Math.pow(time, 1.0 / e));
+				}
+			};
+
+			for (int t = 0; t <= TURNS; t++) {
+				change.next(random);
+				double time = t < TURNS / 2 ? t / (TURNS / 2.0) : random.nextDouble();
+				double goal = min + range * (1 - Math.pow(time, 1.0 / e));
+
+				if (schedule.indexNearTarget(time) != outcomes.indexNearUtility(goal)) {
+					mismatches++;
+				}
+				// The window of TimeDependent_Offering, widened until it is
+				// not empty
+				int to = schedule.firstBelow(goal, time);
+				if (to != outcomes.firstBelow(goal)) {
+					mismatches++;
+				}
+				double upperBound = goal + TimeDependent_Offering.SCHEDULE_MARGIN;
+				int from = schedule.firstAtMost(upperBound, time);
+				if (from != outcomes.firstAtMost(upperBound)) {
+					mismatches++;
+				}
+				while (from >= to && upperBound < 1.01) {
+					upperBound += 0.01;
+					from = outcomes.firstAtMost(upperBound);
+				}
+				if (from < to && !sameBid(indexed, linear, outcomes, from, to)) {
+					mismatches++;
+				}
+			}
+		}
+
+		// Arbitrary windows, from a single bid to the whole index
+		for (int w = 0; w < WINDOWS; w++) {
+			change.next(random);
+			int from = random.nextInt(outcomes.size());
+			int width = w % 2 == 0 ? 1 + random.nextInt(3 * IndexedBestBid.BLOCK_SIZE)
+					: 1 + random.nextInt(outcomes.size());
+			int to = Math.min(outcomes.size(), from + width);
+			if (!sameBid(indexed, linear, outcomes, from, to)) {
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	/**
+	 * @return true if both strategies pick the same bid in the positions
+	 *         [from, to)
+	 */
+	private static boolean sameBid(IndexedBestBid indexed, BestBid linear, OutcomeIndex outcomes, int from,
+			int to) {
+		List<BidDetails> bids = new ArrayList<BidDetails>(to - from);
+		for (int i = from; i < to; i++) {
+			bids.add(outcomes.getBidDetails(i));
+		}
+		return linear.getBid(bids).getBid().equals(indexed.getBid(from, to).getBid());
+	}
+}
@@ -0,0 +1,230 @@
+package group10;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.timeline.DiscreteTimeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of Agent26 and of the Opponent model, on the domains of the templates and at
+ * several history lengths. Both classes are in the default package, which can not be imported and
+ * where JMH does not generate benchmarks, so they are reached through reflection. The calls
+ * measured take microseconds or more, far above the cost of a reflective call.
+ * See Group10Benchmarks to run them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Agent26Benchmarks {
+    /**
+     * Agent26 set up on a fixture without a running negotiation
+     */
+    static class BenchAgent26 {
+        private static final Class<?> AGENT = load("Agent26");
+        private static final Method INIT_MODELS = method(AGENT, "initModels");
+        private static final Method GENERATE_NASH_BID = method(AGENT, "generateNashBid");
+        private static final Method ESTIMATE_UTILITY_SPACE = method(AGENT, "estimateUtilitySpace_a10");
+
+        final AbstractNegotiationParty agent;
+
+        BenchAgent26(Fixture fixture, int rankingSize) throws Exception {
+            this.agent = (AbstractNegotiationParty) AGENT.newInstance();
+            // The domain of the agent, until it estimates its own space
+            set(this.agent, "utilitySpace", fixture.getSpace());
+            set(this.agent, "userModel", fixture.userModel(rankingSize, Group10Benchmarks.RANKING_SEED));
+            set(this.agent, "rand", new Random(Group10Benchmarks.HISTORY_SEED));
+            // Late in the session, where Agent26 searches Nash bids
+            DiscreteTimeline timeline = new DiscreteTimeline(Group10Benchmarks.ROUNDS);
+            for (int r = 0; r < 0.8 * Group10Benchmarks.ROUNDS; r++) {
+                timeline.increment();
+            }
+            set(this.agent, "timeline", timeline);
+        }
+
+        void initModels() throws Exception {
+            INIT_MODELS.invoke(this.agent);
+        }
+
+        Bid generateNashBid() throws Exception {
+            return (Bid) GENERATE_NASH_BID.invoke(this.agent);
+        }
+
+        Object estimateUtilitySpace() throws Exception {
+            return ESTIMATE_UTILITY_SPACE.invoke(this.agent);
+        }
+    }
+
+    /**
+     * Agent26 ranking historyLength bids
+     */
+    @State(Scope.Thread)
+    public static class RankingAgent26 {
+        BenchAgent26 agent;
+
+        @Setup
+        public void setUp(Group10Benchmarks.AdditiveDomain domain) throws Exception {
+            this.agent = new BenchAgent26(domain.fixture, domain.historyLength);
+        }
+    }
+
+    /**
+     * Agent26 late in a session, after historyLength offers of two opponents and a turn that
+     * updated its models
+     */
+    @State(Scope.Thread)
+    public static class NegotiatingAgent26 {
+        BenchAgent26 agent;
+        AgentID opponent;
+        List<Bid> offers;
+        // An offer Agent26 does not accept, so every turn updates the models and bids
+        Offer worstOffer;
+        List<Class<? extends Action>> actions;
+        int next;
+
+        @Setup
+        public void setUp(Group10Benchmarks.AdditiveDomain domain) throws Exception {
+            this.agent = new BenchAgent26(domain.fixture, 100);
+            this.agent.initModels();
+            AgentID[] opponents = {new AgentID("opponent1"), new AgentID("opponent2")};
+            this.offers = domain.fixture.randomBids(domain.historyLength, Group10Benchmarks.HISTORY_SEED);
+            for (int b = 0; b < this.offers.size(); b++) {
+                AgentID opponent = opponents[b % opponents.length];
+                this.agent.agent.receiveMessage(opponent, new Offer(opponent, this.offers.get(b)));
+            }
+            this.opponent = opponents[0];
+            this.worstOffer = new Offer(this.opponent, domain.fixture.getSpace().getMinUtilityBid());
+            this.actions = new ArrayList<Class<? extends Action>>();
+            this.actions.add(Accept.class);
+            this.actions.add(Offer.class);
+            turn();
+        }
+
+        Action turn() {
+            this.agent.agent.receiveMessage(this.opponent, this.worstOffer);
+            return this.agent.agent.chooseAction(this.actions);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Offers {
+        private static final Class<?> OPPONENT = load("Opponent");
+        private static final Constructor<?> NEW_OPPONENT = constructor(OPPONENT, Bid.class);
+        private static final Method ADD_BID = method(OPPONENT, "addBid", Bid.class);
+
+        List<Bid> bids;
+
+        @Setup
+        public void setUp(Group10Benchmarks.AnyDomain domain) {
+            this.bids = domain.fixture.randomBids(domain.historyLength, Group10Benchmarks.HISTORY_SEED);
+        }
+    }
+
+    @Benchmark
+    public Object agent26EstimateUtilitySpace(RankingAgent26 state) throws Exception {
+        return state.agent.estimateUtilitySpace();
+    }
+
+    /**
+     * The Nash search of a turn of Agent26, bounded by its share of the turn
+     */
+    @Benchmark
+    public Bid agent26GenerateNashBid(NegotiatingAgent26 state) throws Exception {
+        return state.agent.generateNashBid();
+    }
+
+    /**
+     * A whole turn of Agent26: the offer is counted, the models updated and a bid generated
+     */
+    @Benchmark
+    public Action agent26ChooseAction(NegotiatingAgent26 state) {
+        return state.turn();
+    }
+
+    /**
+     * An offer received by Agent26, counted in the frequency model of its sender
+     */
+    @Benchmark
+    public void agent26ReceiveOffer(NegotiatingAgent26 state) {
+        state.next = (state.next + 1) % state.offers.size();
+        state.agent.agent.receiveMessage(state.opponent, new Offer(state.opponent, state.offers.get(state.next)));
+    }
+
+    /**
+     * Builds a whole history, an operation is a history of historyLength bids
+     */
+    @Benchmark
+    public Object opponentAddBid(Offers state) throws Exception {
+        Object opponent = Offers.NEW_OPPONENT.newInstance(state.bids.get(0));
+        for (Bid bid : state.bids) {
+            Offers.ADD_BID.invoke(opponent, bid);
+        }
+        return opponent;
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The agents are not on the class path", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Constructor<?> constructor(Class<?> type, Class<?>... parameterTypes) {
+        try {
+            return type.getConstructor(parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sets a field of the agent or of one of its superclasses
+     */
+    private static void set(Object target, String name, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // declared higher up
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
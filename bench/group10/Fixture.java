@@ -0,0 +1,131 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.UserModel;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.NonlinearUtilitySpace;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A domain and profile from the templates, with seeded bid histories and rankings drawn from it
+ */
+public class Fixture {
+    // Directory of the domain templates, can be set with -Dbench.templates
+    public static final String TEMPLATES = System.getProperty("bench.templates", "etc/templates");
+
+    private final String name;
+    private final Domain domain;
+    private final AbstractUtilitySpace space;
+    private final BidCodec codec;
+
+    public Fixture(String name, String domainFile, String profileFile, boolean nonlinear) throws Exception {
+        this.name = name;
+        this.domain = new DomainImpl(new File(TEMPLATES, domainFile).getPath());
+        String profile = new File(TEMPLATES, profileFile).getPath();
+        this.space = nonlinear
+                ? new NonlinearUtilitySpace(this.domain, profile) : new AdditiveUtilitySpace(this.domain, profile);
+        this.codec = new BidCodec(this.domain);
+    }
+
+    // Name, domain file and profile file of the default fixtures, the nonlinear ones last
+    private static final String[][] DEFAULTS = {
+            {"party", "partydomain/party_domain.xml", "partydomain/party1_utility.xml"},
+            {"laptop", "laptopdomain/laptop_domain.xml", "laptopdomain/laptop_buyer_utility.xml"},
+            {"energy", "Energy/energy_domain.xml", "Energy/energy_consumer.xml"},
+            {"S-1NIKFRT-1", "nonlinear/S-1NIKFRT-1/S-1NIKFRT-1-domain.xml", "nonlinear/S-1NIKFRT-1/profile-1.xml"}};
+    private static final int NUM_ADDITIVE = 3;
+
+    /**
+     * @return the party, laptop and energy domains and a nonlinear domain
+     */
+    public static List<Fixture> loadDefaults() throws Exception {
+        List<Fixture> fixtures = new ArrayList<Fixture>();
+        for (String[] fixture : DEFAULTS) {
+            fixtures.add(load(fixture[0]));
+        }
+        return fixtures;
+    }
+
+    /**
+     * @param name the name of one of the default fixtures, the benchmarks take it as parameter
+     */
+    public static Fixture load(String name) throws Exception {
+        for (int f = 0; f < DEFAULTS.length; f++) {
+            if (DEFAULTS[f][0].equals(name)) {
+                return new Fixture(name, DEFAULTS[f][1], DEFAULTS[f][2], f >= NUM_ADDITIVE);
+            }
+        }
+        throw new IllegalArgumentException("Unknown fixture " + name);
+    }
+
+    /**
+     * Drops the standard output, the agents print a lot while they work
+     */
+    public static void muteOutput() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Domain getDomain() {
+        return this.domain;
+    }
+
+    public AbstractUtilitySpace getSpace() {
+        return this.space;
+    }
+
+    public BidCodec getCodec() {
+        return this.codec;
+    }
+
+    public boolean isAdditive() {
+        return this.space instanceof AdditiveUtilitySpace;
+    }
+
+    /**
+     * @return the same random bids for the same seed
+     */
+    public List<Bid> randomBids(int count, long seed) {
+        Random random = new Random(seed);
+        int[] values = new int[this.codec.getNumberOfIssues()];
+        List<Bid> bids = new ArrayList<Bid>(count);
+        for (int b = 0; b < count; b++) {
+            bids.add(this.codec.decode(this.codec.randomBid(random, values)));
+        }
+        return bids;
+    }
+
+    /**
+     * @return a user model ranking random bids by the utility of the profile, from low to high
+     */
+    public UserModel userModel(int count, long seed) {
+        List<Bid> bids = randomBids(count, seed);
+        Collections.sort(bids, new Comparator<Bid>() {
+            @Override
+            public int compare(Bid bid1, Bid bid2) {
+                return Double.compare(space.getUtility(bid1), space.getUtility(bid2));
+            }
+        });
+        return new UserModel(new BidRanking(bids, this.space.getUtility(bids.get(0)),
+                this.space.getUtility(bids.get(bids.size() - 1))));
+    }
+}
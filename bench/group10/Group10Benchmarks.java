@@ -0,0 +1,305 @@
+package group10;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.actions.Offer;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of Agent10 and of the shared search structures of this package, on the domains
+ * of the templates and at several history lengths. Run from the project directory with the agents,
+ * the benchmarks, genius and the JMH jars of bench/lib on the class path:
+ * <pre>
+ *     java -cp out:genius-9.1.2/genius-9.1.2.jar:bench/lib/* group10.Group10Benchmarks [benchmark regexp]
+ * </pre>
+ * This runs the benchmarks of this class and of {@link Agent26Benchmarks} with the GC profiler,
+ * which reports the allocation rate (gc.alloc.rate.norm is in bytes per operation) next to the
+ * throughput. The usual JMH command line, {@code org.openjdk.jmh.Main -prof gc}, works as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Group10Benchmarks {
+    // Seeds of the opponent offers and of the bid rankings
+    public static final long HISTORY_SEED = 42;
+    public static final long RANKING_SEED = 7;
+    // Rounds of the benchmark sessions, the agents are set up halfway
+    public static final int ROUNDS = 1000;
+
+    /**
+     * Agent10 set up on a fixture without a running negotiation
+     */
+    static class BenchAgent10 extends Agent10 {
+        private final Fixture fixture;
+
+        BenchAgent10(Fixture fixture, int rankingSize) {
+            this.fixture = fixture;
+            this.userModel = fixture.userModel(rankingSize, RANKING_SEED);
+            DiscreteTimeline timeline = new DiscreteTimeline(ROUNDS);
+            for (int r = 0; r < ROUNDS / 2; r++) {
+                timeline.increment();
+            }
+            this.timeline = timeline;
+        }
+
+        @Override
+        public Domain getDomain() {
+            return this.fixture.getDomain();
+        }
+
+        @Override
+        public double getUtility(Bid bid) {
+            return this.fixture.getSpace().getUtility(bid);
+        }
+
+        @Override
+        public AbstractUtilitySpace getUtilitySpace() {
+            return this.fixture.getSpace();
+        }
+    }
+
+    /**
+     * A fixture with an additive profile, the agents estimate additive spaces
+     */
+    @State(Scope.Thread)
+    public static class AdditiveDomain {
+        @Param({"party", "laptop", "energy"})
+        public String domain;
+        // The number of offers received, or the size of the bid ranking for the estimators
+        @Param({"10", "100", "1000"})
+        public int historyLength;
+
+        public Fixture fixture;
+
+        @Setup
+        public void loadFixture() throws Exception {
+            Fixture.muteOutput();
+            this.fixture = Fixture.load(this.domain);
+        }
+    }
+
+    /**
+     * Any fixture, with a nonlinear one
+     */
+    @State(Scope.Thread)
+    public static class AnyDomain {
+        @Param({"party", "laptop", "energy", "S-1NIKFRT-1"})
+        public String domain;
+        @Param({"10", "100", "1000"})
+        public int historyLength;
+
+        public Fixture fixture;
+
+        @Setup
+        public void loadFixture() throws Exception {
+            Fixture.muteOutput();
+            this.fixture = Fixture.load(this.domain);
+        }
+    }
+
+    /**
+     * Agent10 ranking historyLength bids
+     */
+    @State(Scope.Thread)
+    public static class RankingAgent10 {
+        BenchAgent10 agent;
+
+        @Setup
+        public void setUp(AdditiveDomain domain) {
+            this.agent = new BenchAgent10(domain.fixture, domain.historyLength);
+        }
+    }
+
+    /**
+     * Agent10 in the middle of a session, after historyLength offers of an opponent
+     */
+    @State(Scope.Thread)
+    public static class NegotiatingAgent10 {
+        BenchAgent10 agent;
+
+        @Setup
+        public void setUp(AdditiveDomain domain) {
+            this.agent = new BenchAgent10(domain.fixture, 100);
+            this.agent.initModels();
+            AgentID opponent = new AgentID("opponent");
+            for (Bid bid : domain.fixture.randomBids(domain.historyLength, HISTORY_SEED)) {
+                this.agent.receiveMessage(opponent, new Offer(opponent, bid));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GoodBids {
+        TopBids goodBids;
+        List<Bid> bids;
+        Random random;
+        int next;
+
+        @Setup
+        public void setUp(AdditiveDomain domain) {
+            this.goodBids = new TopBids(100);
+            this.bids = domain.fixture.randomBids(domain.historyLength, HISTORY_SEED);
+            this.random = new Random(HISTORY_SEED);
+        }
+    }
+
+    /**
+     * The Nash chains of Agent26 against a frequency model of historyLength offers
+     */
+    @State(Scope.Thread)
+    public static class Chains {
+        NashChains chains;
+        int[] start;
+        int[] state;
+
+        @Setup
+        public void setUp(AdditiveDomain domain) throws Exception {
+            Fixture fixture = domain.fixture;
+            BidCodec codec = fixture.getCodec();
+            CompiledEvaluator own = CompiledEvaluator.compile((AdditiveUtilitySpace) fixture.getSpace(), codec);
+            this.chains = new NashChains(own, Runtime.getRuntime().availableProcessors(), HISTORY_SEED,
+                    ForkJoinPool.commonPool());
+            this.chains.setOpponent(frequencyModel(fixture, domain.historyLength));
+            this.chains.setIterations(40000);
+            this.start = codec.encode(fixture.getSpace().getMaxUtilityBid());
+            this.state = new int[this.start.length];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Index {
+        OutcomeIndex index;
+        Random random;
+
+        @Setup
+        public void setUp(AnyDomain domain) throws Exception {
+            Fixture fixture = domain.fixture;
+            AbstractUtilitySpace space = fixture.getSpace();
+            if (fixture.isAdditive()) {
+                this.index = OutcomeIndex.get(space);
+            } else {
+                // Too many outcomes to enumerate, index a sample of them on disk
+                File directory = new File(System.getProperty("java.io.tmpdir"), "bench-index");
+                File file = OutcomeIndexWriter.write(space, directory, 1 << 16);
+                this.index = new MappedOutcomeIndex(file, fixture.getCodec());
+            }
+            this.random = new Random(HISTORY_SEED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Offers {
+        AbstractUtilitySpace space;
+        List<Bid> bids;
+        int next;
+
+        @Setup
+        public void setUp(AnyDomain domain) {
+            this.space = domain.fixture.getSpace();
+            this.bids = domain.fixture.randomBids(domain.historyLength, HISTORY_SEED);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "group10\\..*Benchmarks")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Benchmark
+    public AbstractUtilitySpace agent10EstimateUtilitySpace(RankingAgent10 state) {
+        return state.agent.estimateUtilitySpace_a10();
+    }
+
+    /**
+     * A turn of Agent10: the candidates are drawn and scored, and a bid is offered from the best ones
+     */
+    @Benchmark
+    public Bid agent10GenerateBid(NegotiatingAgent10 state) {
+        state.agent.num_Round++;
+        return state.agent.generateBid();
+    }
+
+    @Benchmark
+    public Bid topBidsOffer(GoodBids state) {
+        // A generated bid, then an offer from the best ones as in Agent10.generateBid
+        state.next = (state.next + 1) % state.bids.size();
+        state.goodBids.offer(state.bids.get(state.next), state.random.nextDouble());
+        return state.goodBids.sampleBest(5, state.random);
+    }
+
+    @Benchmark
+    public double nashChainsSearch(Chains state) {
+        System.arraycopy(state.start, 0, state.state, 0, state.start.length);
+        return state.chains.search(state.state, 0.5);
+    }
+
+    @Benchmark
+    public Bid outcomeIndexSampleAbove(Index state) {
+        int position = state.index.sampleAbove(0.7, state.random);
+        return state.index.getBid(Math.max(position, 0));
+    }
+
+    @Benchmark
+    public double getUtility(Offers state) {
+        state.next = (state.next + 1) % state.bids.size();
+        return state.space.getUtility(state.bids.get(state.next));
+    }
+
+    /**
+     * @return the value frequencies of random offers with equal issue weights, as the agents model an opponent
+     */
+    static CompiledEvaluator frequencyModel(Fixture fixture, int historyLength) {
+        BidCodec codec = fixture.getCodec();
+        CompiledEvaluator model = new CompiledEvaluator(codec.getNumbersOfValues());
+        int[][] counts = new int[codec.getNumberOfIssues()][];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new int[codec.getNumberOfValues(i)];
+        }
+        int[] values = new int[counts.length];
+        for (Bid bid : fixture.randomBids(historyLength, HISTORY_SEED)) {
+            codec.encode(bid, values);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i][values[i]]++;
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            int max = 1;
+            for (int count : counts[i]) {
+                max = Math.max(max, count);
+            }
+            model.setWeight(i, 1.0 / counts.length);
+            for (int v = 0; v < counts[i].length; v++) {
+                model.setScore(i, v, counts[i][v] / (double) max);
+            }
+        }
+        return model;
+    }
+}
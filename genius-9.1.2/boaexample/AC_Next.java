@@ -1,9 +1,13 @@
 package boaexample;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import boaexample.AcceptanceTrace.Outcome;
+import genius.core.NegotiationResult;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
 import genius.core.boaframework.BOAparameter;
@@ -21,8 +25,17 @@ import genius.core.boaframework.OpponentModel;
  */
 public class AC_Next extends AcceptanceStrategy {
 
+	/**
+	 * Directory where the trace of each session is written at its end, to
+	 * replay with {@link AcceptanceGrid}. Traces are not written when it is
+	 * not set.
+	 */
+	public static final String TRACE_DIR = System.getProperty("boaexample.trace.dir");
+
 	private double a;
 	private double b;
+	/** The turns seen so far, to replay with {@link AcceptanceGrid} */
+	private AcceptanceTrace trace = new AcceptanceTrace();
 
 	/**
 	 * Empty constructor for the BOA framework.
@@ -44,6 +57,7 @@ public class AC_Next extends AcceptanceStrategy {
 			throws Exception {
 		this.negotiationSession = negoSession;
 		this.offeringStrategy = strat;
+		this.trace = new AcceptanceTrace();
 
 		if (parameters.get("a") != null || parameters.get("b") != null) {
 			a = parameters.get("a");
@@ -67,12 +81,54 @@ public class AC_Next extends AcceptanceStrategy {
 		double lastOpponentBidUtil = negotiationSession.getOpponentBidHistory()
 				.getLastBidDetails().getMyUndiscountedUtil();
 
+		trace.add(negotiationSession.getTime(), lastOpponentBidUtil,
+				nextMyBidUtil);
+
 		if (a * lastOpponentBidUtil + b >= nextMyBidUtil) {
+			trace.setOutcome(Outcome.ACCEPTED, lastOpponentBidUtil,
+					negotiationSession.getTime());
 			return Actions.Accept;
 		}
 		return Actions.Reject;
 	}
 
+	/**
+	 * Records how the session ended in the trace, and writes it to
+	 * {@link #TRACE_DIR}
+	 */
+	@Override
+	public void endSession(NegotiationResult result) {
+		if (trace.getOutcome() == Outcome.OPEN) {
+			if (result.getLastBid() != null) {
+				trace.setOutcome(Outcome.OPPONENT_ACCEPTED, negotiationSession
+						.getUtilitySpace().getUtility(result.getLastBid()),
+						negotiationSession.getTime());
+			} else {
+				Double reservation = negotiationSession.getUtilitySpace()
+						.getReservationValueUndiscounted();
+				trace.setOutcome(Outcome.NO_AGREEMENT,
+						reservation == null ? 0 : reservation,
+						negotiationSession.getTime());
+			}
+		}
+		if (TRACE_DIR != null) {
+			try {
+				File directory = new File(TRACE_DIR);
+				directory.mkdirs();
+				trace.write(File.createTempFile("AC_Next-", ".csv", directory));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return the turns of the session so far
+	 */
+	public AcceptanceTrace getTrace() {
+		return trace;
+	}
+
 	@Override
 	public Set<BOAparameter> getParameterSpec() {
 
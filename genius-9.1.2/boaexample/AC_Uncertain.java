@@ -1,11 +1,10 @@
 package boaexample;
 
-import java.util.List;
-
 import genius.core.Bid;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
 import genius.core.uncertainty.UserModel;
+import group10.BidRankIndex;
 
 /**
  * Accepts:
@@ -19,6 +18,10 @@ import genius.core.uncertainty.UserModel;
  */
 public class AC_Uncertain extends AcceptanceStrategy {
 
+	// Ranks of the bids of the user model, built once per session
+	private BidRankIndex rankIndex;
+	private UserModel rankedModel;
+
 	@Override
 	public Actions determineAcceptability() {
 		Bid receivedBid = negotiationSession.getOpponentBidHistory()
@@ -30,14 +33,14 @@ public class AC_Uncertain extends AcceptanceStrategy {
 
 		UserModel userModel = negotiationSession.getUserModel();
 		if (userModel != null) {
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
-				if (percentile < 0.1)
-					return Actions.Accept;
+			if (rankIndex == null || rankedModel != userModel) {
+				rankIndex = new BidRankIndex(negotiationSession.getDomain(),
+						userModel.getBidRanking());
+				rankedModel = userModel;
 			}
+			double percentile = rankIndex.getPercentile(receivedBid);
+			if (percentile >= 0 && percentile < 0.1)
+				return Actions.Accept;
 		} else {
 			// we have a normal utilityspace
 			double otherLastUtil = negotiationSession.getUtilitySpace()
@@ -0,0 +1,174 @@
+package boaexample;
+
+import java.io.File;
+
+import boaexample.AcceptanceTrace.Outcome;
+
+/**
+ * Evaluates {@link AC_Next} for a whole grid of (a, b) parameters on a
+ * recorded {@link AcceptanceTrace}, so tuning the parameters takes one
+ * session instead of one session per pair. The trace is replayed once: each
+ * turn tests all the pairs which did not accept yet, and a pair leaves the
+ * grid at its first acceptance. A pair which never accepts within the trace
+ * gets the outcome of the session: the agreement if the opponent accepted our
+ * bid, or no agreement at the deadline.
+ *
+ * A pair which does not accept within the trace may still accept after the
+ * turn where the recording condition accepted, its outcome is then
+ * {@link Outcome#OPEN}. Record with a condition which never accepts, e.g. a =
+ * 0 and b = -1, to evaluate every pair.
+ *
+ * Usage:
+ * {@code AcceptanceGrid <trace.csv> [a from] [a to] [a steps] [b from] [b to] [b steps]}
+ * with traces written by AC_Next, see {@link AC_Next#TRACE_DIR}.
+ */
+public class AcceptanceGrid {
+
+	private final double[] as;
+	private final double[] bs;
+	// The parameters of each pair, pair i * bs.length + j being (as[i], bs[j])
+	private final double[] pairA;
+	private final double[] pairB;
+	// Outcome of each pair, and the turn at which it accepts, -1 if it does
+	// not
+	private final Outcome[] outcomes;
+	private final int[] turns;
+	private final double[] times;
+	private final double[] utilities;
+
+	public AcceptanceGrid(double[] as, double[] bs) {
+		this.as = as.clone();
+		this.bs = bs.clone();
+		int size = as.length * bs.length;
+		pairA = new double[size];
+		pairB = new double[size];
+		for (int i = 0; i < as.length; i++) {
+			for (int j = 0; j < bs.length; j++) {
+				pairA[i * bs.length + j] = as[i];
+				pairB[i * bs.length + j] = bs[j];
+			}
+		}
+		outcomes = new Outcome[size];
+		turns = new int[size];
+		times = new double[size];
+		utilities = new double[size];
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println(
+					"Usage: AcceptanceGrid <trace.csv> [a from] [a to] [a steps] [b from] [b to] [b steps]");
+			return;
+		}
+		AcceptanceTrace trace = AcceptanceTrace.read(new File(args[0]));
+		double[] as = range(argument(args, 1, 0), argument(args, 2, 2), (int) argument(args, 3, 21));
+		double[] bs = range(argument(args, 4, -0.2), argument(args, 5, 0.2), (int) argument(args, 6, 21));
+		AcceptanceGrid grid = new AcceptanceGrid(as, bs);
+		grid.replay(trace);
+		System.out.print(grid);
+	}
+
+	private static double argument(String[] args, int index, double defaultValue) {
+		return args.length > index ? Double.parseDouble(args[index]) : defaultValue;
+	}
+
+	/**
+	 * @return steps values evenly spaced from from to to, inclusive
+	 */
+	public static double[] range(double from, double to, int steps) {
+		double[] values = new double[steps];
+		for (int s = 0; s < steps; s++) {
+			values[s] = steps == 1 ? from : from + (to - from) * s / (steps - 1);
+		}
+		return values;
+	}
+
+	/**
+	 * Replays a trace against every pair of the grid
+	 */
+	public void replay(AcceptanceTrace trace) {
+		int[] active = new int[turns.length];
+		for (int p = 0; p < active.length; p++) {
+			active[p] = p;
+			turns[p] = -1;
+		}
+		int numActive = active.length;
+
+		for (int turn = 0; turn < trace.size() && numActive > 0; turn++) {
+			double opponentUtility = trace.getOpponentUtility(turn);
+			double nextUtility = trace.getNextUtility(turn);
+			for (int k = numActive - 1; k >= 0; k--) {
+				int p = active[k];
+				// The condition of AC_Next
+				if (pairA[p] * opponentUtility + pairB[p] >= nextUtility) {
+					outcomes[p] = Outcome.ACCEPTED;
+					turns[p] = turn;
+					times[p] = trace.getTime(turn);
+					utilities[p] = opponentUtility;
+					active[k] = active[--numActive];
+				}
+			}
+		}
+
+		// The pairs which never accepted end as the session did, unless the
+		// recording condition accepted before them
+		Outcome outcome = trace.getOutcome() == Outcome.ACCEPTED ? Outcome.OPEN : trace.getOutcome();
+		boolean ended = outcome != Outcome.OPEN;
+		for (int k = 0; k < numActive; k++) {
+			int p = active[k];
+			outcomes[p] = outcome;
+			times[p] = ended ? trace.getOutcomeTime() : Double.NaN;
+			utilities[p] = ended ? trace.getOutcomeUtility() : Double.NaN;
+		}
+	}
+
+	/**
+	 * @return how the session ends with (as[i], bs[j])
+	 */
+	public Outcome getOutcome(int i, int j) {
+		return outcomes[i * bs.length + j];
+	}
+
+	/**
+	 * @return the turn at which (as[i], bs[j]) accepts, or -1 if it does not
+	 *         accept within the trace
+	 */
+	public int getAcceptanceTurn(int i, int j) {
+		return turns[i * bs.length + j];
+	}
+
+	/**
+	 * @return the time at which the session ends with (as[i], bs[j]), or NaN
+	 *         if it is open
+	 */
+	public double getAcceptanceTime(int i, int j) {
+		return times[i * bs.length + j];
+	}
+
+	/**
+	 * @return our undiscounted utility of the outcome with (as[i], bs[j]): the
+	 *         agreement, the reservation value without agreement, or NaN if it
+	 *         is open
+	 */
+	public double getUtility(int i, int j) {
+		return utilities[i * bs.length + j];
+	}
+
+	/**
+	 * @return the results as comma separated values, one line per pair
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("a,b,outcome,turn,time,utility\n");
+		for (int i = 0; i < as.length; i++) {
+			for (int j = 0; j < bs.length; j++) {
+				builder.append(as[i]).append(',').append(bs[j]).append(',')
+						.append(getOutcome(i, j)).append(',')
+						.append(getAcceptanceTurn(i, j)).append(',')
+						.append(getAcceptanceTime(i, j)).append(',')
+						.append(getUtility(i, j)).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,169 @@
+package boaexample;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The turns of a session as seen by an acceptance condition: the time, the
+ * utility of the last opponent bid and the utility of the bid we are about to
+ * offer, all undiscounted, and how the session ended. Our offers do not depend
+ * on the acceptance condition, so a trace can be replayed against other
+ * conditions with {@link AcceptanceGrid}, up to the turn where the recording
+ * condition accepted.
+ *
+ * A trace is written to and read from a CSV file: a line with the outcome,
+ * its utility and time, a header and one line per turn.
+ */
+public class AcceptanceTrace {
+
+	/**
+	 * How the session of a trace ended
+	 */
+	public enum Outcome {
+		/** The recording condition accepted the last opponent bid */
+		ACCEPTED,
+		/** The opponent accepted our bid of the last turn */
+		OPPONENT_ACCEPTED,
+		/** The deadline passed or a party walked away */
+		NO_AGREEMENT,
+		/** The session did not end yet */
+		OPEN
+	}
+
+	private double[] times = new double[64];
+	private double[] opponentUtilities = new double[64];
+	private double[] nextUtilities = new double[64];
+	private int size;
+	private Outcome outcome = Outcome.OPEN;
+	private double outcomeUtility = Double.NaN;
+	private double outcomeTime = Double.NaN;
+
+	/**
+	 * Records a turn
+	 */
+	public void add(double time, double opponentUtility, double nextUtility) {
+		if (size == times.length) {
+			times = grow(times);
+			opponentUtilities = grow(opponentUtilities);
+			nextUtilities = grow(nextUtilities);
+		}
+		times[size] = time;
+		opponentUtilities[size] = opponentUtility;
+		nextUtilities[size] = nextUtility;
+		size++;
+	}
+
+	/**
+	 * Records how the session ended
+	 *
+	 * @param utility
+	 *            our undiscounted utility of the agreement, or the
+	 *            reservation value without agreement
+	 * @param time
+	 *            the time at which the session ended
+	 */
+	public void setOutcome(Outcome outcome, double utility, double time) {
+		this.outcome = outcome;
+		this.outcomeUtility = utility;
+		this.outcomeTime = time;
+	}
+
+	/**
+	 * @return the number of turns recorded
+	 */
+	public int size() {
+		return size;
+	}
+
+	public double getTime(int turn) {
+		return times[turn];
+	}
+
+	/**
+	 * @return our utility of the last opponent bid at a turn
+	 */
+	public double getOpponentUtility(int turn) {
+		return opponentUtilities[turn];
+	}
+
+	/**
+	 * @return our utility of the bid we were about to offer at a turn
+	 */
+	public double getNextUtility(int turn) {
+		return nextUtilities[turn];
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return our undiscounted utility of the outcome, NaN while open
+	 */
+	public double getOutcomeUtility() {
+		return outcomeUtility;
+	}
+
+	/**
+	 * @return the time at which the session ended, NaN while open
+	 */
+	public double getOutcomeTime() {
+		return outcomeTime;
+	}
+
+	/**
+	 * Writes the trace to a CSV file
+	 */
+	public void write(File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("outcome," + outcome + "," + outcomeUtility + "," + outcomeTime);
+			out.println("time,opponentUtility,nextUtility");
+			for (int turn = 0; turn < size; turn++) {
+				out.println(times[turn] + "," + opponentUtilities[turn] + "," + nextUtilities[turn]);
+			}
+		} finally {
+			out.close();
+		}
+		if (out.checkError()) {
+			throw new IOException("Can not write " + file);
+		}
+	}
+
+	/**
+	 * Reads a trace written by {@link #write(File)}
+	 */
+	public static AcceptanceTrace read(File file) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			AcceptanceTrace trace = new AcceptanceTrace();
+			String first = in.readLine();
+			if (first == null) {
+				throw new IOException("Empty trace " + file);
+			}
+			String[] outcome = first.split(",");
+			trace.setOutcome(Outcome.valueOf(outcome[1]), Double.parseDouble(outcome[2]),
+					Double.parseDouble(outcome[3]));
+			// header
+			in.readLine();
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] turn = line.split(",");
+				trace.add(Double.parseDouble(turn[0]), Double.parseDouble(turn[1]), Double.parseDouble(turn[2]));
+			}
+			return trace;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static double[] grow(double[] array) {
+		double[] grown = new double[2 * array.length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
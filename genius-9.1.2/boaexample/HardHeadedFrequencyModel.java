@@ -1,30 +1,30 @@
 package boaexample;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import genius.core.Bid;
-import genius.core.bidding.BidDetails;
 import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OpponentModel;
-import genius.core.issue.Issue;
-import genius.core.issue.IssueDiscrete;
 import genius.core.issue.Objective;
-import genius.core.issue.Value;
-import genius.core.issue.ValueDiscrete;
 import genius.core.utility.AdditiveUtilitySpace;
-import genius.core.utility.Evaluator;
 import genius.core.utility.EvaluatorDiscrete;
+import group10.BidCodec;
 
 /**
  * BOA framework implementation of the HardHeaded Frequecy Model.
- * 
+ *
  * Default: learning coef l = 0.2; learnValueAddition v = 1.0
- * 
+ *
+ * The weights and the value counts are kept in arrays indexed by issue
+ * position and value index (see {@link BidCodec}), so an update and an
+ * evaluation take O(issues). The opponent utility space is written along
+ * with the arrays, only for the weights and values that changed, so the
+ * accessors inherited from OpponentModel always see the learned model.
+ *
  * paper: https://ii.tudelft.nl/sites/default/files/boa.pdf
  */
 public class HardHeadedFrequencyModel extends OpponentModel {
@@ -43,18 +43,51 @@ public class HardHeadedFrequencyModel extends OpponentModel {
 	private int amountOfIssues;
 	private double goldenValue;
 
+	private BidCodec codec;
+	// Weight of each issue
+	private double[] weights;
+	// Not normalized evaluation of each value, the values of issue i start at
+	// offsets[i]
+	private int[] offsets;
+	private int[] evaluations;
+	// Highest evaluation of each issue, and the weight divided by it
+	private int[] maxEvaluations;
+	private double[] factors;
+	// The last two bids of the opponent, and a bid being evaluated
+	private int[] lastValues;
+	private int[] values;
+	private int[] encoded;
+	// The issues and evaluators of the opponent utility space, by issue
+	// position
+	private Objective[] objectives;
+	private EvaluatorDiscrete[] evaluators;
+	// Incremented on every change of the model
+	private int version;
+
 	@Override
 	public void init(NegotiationSession negotiationSession,
 			Map<String, Double> parameters) {
 		this.negotiationSession = negotiationSession;
+		double coef = 0.2;
 		if (parameters != null && parameters.get("l") != null) {
-			learnCoef = parameters.get("l");
-		} else {
-			learnCoef = 0.2;
+			coef = parameters.get("l");
 		}
+		init((AdditiveUtilitySpace) negotiationSession.getUtilitySpace().copy(),
+				coef);
+	}
+
+	/**
+	 * Starts learning from a flat model
+	 *
+	 * @param space
+	 *            the utility space holding the learned model, a copy of ours
+	 * @param learnCoef
+	 *            the learning coefficient
+	 */
+	void init(AdditiveUtilitySpace space, double learnCoef) {
+		this.learnCoef = learnCoef;
 		learnValueAddition = 1;
-		opponentUtilitySpace = (AdditiveUtilitySpace) negotiationSession
-				.getUtilitySpace().copy();
+		opponentUtilitySpace = space;
 		amountOfIssues = opponentUtilitySpace.getDomain().getIssues().size();
 		/*
 		 * This is the value to be added to weights of unchanged issues before
@@ -64,27 +97,31 @@ public class HardHeadedFrequencyModel extends OpponentModel {
 		goldenValue = learnCoef / amountOfIssues;
 
 		initializeModel();
-
 	}
 
 	@Override
 	public void updateModel(Bid opponentBid, double time) {
-		if (negotiationSession.getOpponentBidHistory().size() < 2) {
+		int size = negotiationSession.getOpponentBidHistory().size();
+		if (size < 2) {
 			return;
 		}
-		int numberOfUnchanged = 0;
-		BidDetails oppBid = negotiationSession.getOpponentBidHistory()
-				.getHistory()
-				.get(negotiationSession.getOpponentBidHistory().size() - 1);
-		BidDetails prevOppBid = negotiationSession.getOpponentBidHistory()
-				.getHistory()
-				.get(negotiationSession.getOpponentBidHistory().size() - 2);
-		HashMap<Integer, Integer> lastDiffSet = determineDifference(prevOppBid,
-				oppBid);
+		update(negotiationSession.getOpponentBidHistory().getHistory()
+				.get(size - 1).getBid(),
+				negotiationSession.getOpponentBidHistory().getHistory()
+						.get(size - 2).getBid());
+	}
+
+	/**
+	 * Learns from the last two bids of the opponent
+	 */
+	void update(Bid bid, Bid previousBid) {
+		codec.encode(bid, values);
+		codec.encode(previousBid, lastValues);
 
 		// count the number of changes in value
-		for (Integer i : lastDiffSet.keySet()) {
-			if (lastDiffSet.get(i) == 0)
+		int numberOfUnchanged = 0;
+		for (int i = 0; i < amountOfIssues; i++) {
+			if (values[i] == lastValues[i])
 				numberOfUnchanged++;
 		}
 
@@ -93,53 +130,86 @@ public class HardHeadedFrequencyModel extends OpponentModel {
 		// The maximum possible weight
 		double maximumWeight = 1D - (amountOfIssues) * goldenValue / totalSum;
 
-		// re-weighing issues while making sure that the sum remains 1
-		for (Integer i : lastDiffSet.keySet()) {
-			Objective issue = opponentUtilitySpace.getDomain()
-					.getObjectivesRoot().getObjective(i);
-			double weight = opponentUtilitySpace.getWeight(i);
-			double newWeight;
-
-			if (lastDiffSet.get(i) == 0 && weight < maximumWeight) {
-				newWeight = (weight + goldenValue) / totalSum;
+		for (int i = 0; i < amountOfIssues; i++) {
+			// re-weighing issues while making sure that the sum remains 1
+			if (values[i] == lastValues[i] && weights[i] < maximumWeight) {
+				weights[i] = (weights[i] + goldenValue) / totalSum;
 			} else {
-				newWeight = weight / totalSum;
+				weights[i] = weights[i] / totalSum;
 			}
-			opponentUtilitySpace.setWeight(issue, newWeight);
-		}
 
-		// Then for each issue value that has been offered last time, a constant
-		// value is added to its corresponding ValueDiscrete.
-		try {
-			for (Entry<Objective, Evaluator> e : opponentUtilitySpace
-					.getEvaluators()) {
-				EvaluatorDiscrete value = (EvaluatorDiscrete) e.getValue();
-				IssueDiscrete issue = ((IssueDiscrete) e.getKey());
-				/*
-				 * add constant learnValueAddition to the current preference of
-				 * the value to make it more important
-				 */
-				ValueDiscrete issuevalue = (ValueDiscrete) oppBid.getBid()
-						.getValue(issue.getNumber());
-				Integer eval = value.getEvaluationNotNormalized(issuevalue);
-				value.setEvaluation(issuevalue, (learnValueAddition + eval));
+			// Then for the issue value that has been offered last time, a
+			// constant value is added to its evaluation to make it more
+			// important
+			if (values[i] >= 0) {
+				int evaluation = evaluations[offsets[i] + values[i]] += learnValueAddition;
+				if (evaluation > maxEvaluations[i]) {
+					maxEvaluations[i] = evaluation;
+				}
 			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
+			factors[i] = weights[i] / maxEvaluations[i];
 		}
+		writeIssues(values);
+		version++;
 	}
 
 	@Override
 	public double getBidEvaluation(Bid bid) {
+		return getBidEvaluation(codec.encode(bid, encoded));
+	}
+
+	/**
+	 * @param bid
+	 *            the bid encoded as the value index of each issue, see
+	 *            {@link #getCodec()}
+	 * @return the estimated utility of the bid for the opponent
+	 */
+	public double getBidEvaluation(int[] bid) {
 		double result = 0;
-		try {
-			result = opponentUtilitySpace.getUtility(bid);
-		} catch (Exception e) {
-			e.printStackTrace();
+		for (int i = 0; i < amountOfIssues; i++) {
+			if (bid[i] >= 0) {
+				result += factors[i] * evaluations[offsets[i] + bid[i]];
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Writes the weights and the evaluations of the given values to the
+	 * opponent utility space
+	 * 
+	 * @param changed
+	 *            the value index of each issue whose evaluation changed, -1
+	 *            for none
+	 */
+	private void writeIssues(int[] changed) {
+		try {
+			for (int i = 0; i < amountOfIssues; i++) {
+				opponentUtilitySpace.setWeight(objectives[i], weights[i]);
+				if (changed[i] >= 0) {
+					evaluators[i].setEvaluation(codec.getValue(i, changed[i]),
+							evaluations[offsets[i] + changed[i]]);
+				}
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the codec of the value indices of {@link #getBidEvaluation(int[])}
+	 */
+	public BidCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return a number which changes whenever the model is updated
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	@Override
 	public String getName() {
 		return "HardHeaded Frequency Model";
@@ -159,49 +229,48 @@ public class HardHeadedFrequencyModel extends OpponentModel {
 	private void initializeModel() {
 		double commonWeight = 1D / amountOfIssues;
 
-		for (Entry<Objective, Evaluator> e : opponentUtilitySpace
-				.getEvaluators()) {
-
-			opponentUtilitySpace.unlock(e.getKey());
-			e.getValue().setWeight(commonWeight);
-			try {
-				// set all value weights to one (they are normalized when
-				// calculating the utility)
-				for (ValueDiscrete vd : ((IssueDiscrete) e.getKey())
-						.getValues())
-					((EvaluatorDiscrete) e.getValue()).setEvaluation(vd, 1);
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
+		codec = new BidCodec(opponentUtilitySpace.getDomain());
+		weights = new double[amountOfIssues];
+		offsets = new int[amountOfIssues];
+		maxEvaluations = new int[amountOfIssues];
+		factors = new double[amountOfIssues];
+		lastValues = new int[amountOfIssues];
+		values = new int[amountOfIssues];
+		encoded = new int[amountOfIssues];
+		int numValues = 0;
+		for (int i = 0; i < amountOfIssues; i++) {
+			offsets[i] = numValues;
+			numValues += codec.getNumberOfValues(i);
 		}
-	}
-
-	/**
-	 * Determines the difference between bids. For each issue, it is determined
-	 * if the value changed. If this is the case, a 1 is stored in a hashmap for
-	 * that issue, else a 0.
-	 * 
-	 * @param a
-	 *            bid of the opponent
-	 * @param another
-	 *            bid
-	 * @return
-	 */
-	private HashMap<Integer, Integer> determineDifference(BidDetails first,
-			BidDetails second) {
+		evaluations = new int[numValues];
 
-		HashMap<Integer, Integer> diff = new HashMap<Integer, Integer>();
-		try {
-			for (Issue i : opponentUtilitySpace.getDomain().getIssues()) {
-				Value value1 = first.getBid().getValue(i.getNumber());
-				Value value2 = second.getBid().getValue(i.getNumber());
-				diff.put(i.getNumber(), (value1.equals(value2)) ? 0 : 1);
+		objectives = new Objective[amountOfIssues];
+		evaluators = new EvaluatorDiscrete[amountOfIssues];
+		for (int i = 0; i < amountOfIssues; i++) {
+			int number = codec.getIssueNumber(i);
+			objectives[i] = opponentUtilitySpace.getDomain().getObjectivesRoot()
+					.getObjective(number);
+			evaluators[i] = (EvaluatorDiscrete) opponentUtilitySpace
+					.getEvaluator(number);
+			opponentUtilitySpace.unlock(objectives[i]);
+			weights[i] = commonWeight;
+			// set all value weights to one (they are normalized when
+			// calculating the utility)
+			for (int v = 0; v < codec.getNumberOfValues(i); v++) {
+				evaluations[offsets[i] + v] = 1;
+				try {
+					evaluators[i].setEvaluation(codec.getValue(i, v), 1);
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
 			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
+			maxEvaluations[i] = 1;
+			factors[i] = commonWeight;
 		}
-
-		return diff;
+		// -1: no value evaluation to write again
+		Arrays.fill(encoded, -1);
+		writeIssues(encoded);
+		version = 1;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,267 @@
+package boaexample;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OpponentModel;
+import group10.OutcomeIndex;
+
+/**
+ * Selects the same bid as {@link BestBid}, the best bid for the opponent among
+ * similarly preferred bids, from a range of positions of the
+ * {@link OutcomeIndex} of our utility space: as our utility decreases with the
+ * position, a utility window is a range of positions, and no list of the bids
+ * in the window is built.
+ *
+ * This is a lazy BestBid per block of consecutive positions. A block holds the
+ * opponent scores of its outcomes and the position of its best one. It is only
+ * allocated and scored once a window reaches it, so a large index does not
+ * cost heap for the outcomes that are never offered, and it is scored again
+ * when a window reaches it after the opponent model changed. A window scans
+ * the scores of the blocks it covers in part, and takes the best outcome of
+ * the blocks it covers whole.
+ *
+ * The models used with it change on every opponent bid, e.g. the
+ * {@link HardHeadedFrequencyModel} changes the weight of nearly every issue,
+ * which changes the score of every outcome. A turn then still scores every
+ * outcome of the blocks of its window, as BestBid does, but on the value
+ * indices of the HardHeadedFrequencyModel instead of Bid objects; the scores
+ * are only reused by the turns in which the model did not change.
+ */
+public class IndexedBestBid extends OMStrategy {
+
+	/** Number of outcomes of a block */
+	static final int BLOCK_SIZE = 256;
+
+	/**
+	 * when to stop updating the opponentmodel. Note that this value is not
+	 * exactly one as a match sometimes lasts slightly longer.
+	 */
+	double updateThreshold = 1.1;
+
+	private OutcomeIndex outcomes;
+	private Random random;
+	// The blocks of outcomes, null until a window reaches them
+	private Block[] blocks;
+	private int[] values;
+
+	/**
+	 * The opponent scores of the outcomes of a block
+	 */
+	private static class Block {
+		private final double[] scores;
+		// Local position of the best outcome, the first one among equally good
+		// outcomes
+		private int best;
+		// Version of the model with which the block was scored
+		private long version = -1;
+
+		Block(int size) {
+			scores = new double[size];
+		}
+
+		/**
+		 * @return the local position of the best outcome in [from, to), the
+		 *         first one among equally good outcomes
+		 */
+		int best(int from, int to) {
+			if (from == 0 && to == scores.length) {
+				return best;
+			}
+			int best = from;
+			for (int position = from + 1; position < to; position++) {
+				if (scores[position] > scores[best]) {
+					best = position;
+				}
+			}
+			return best;
+		}
+	}
+
+	@Override
+	public void init(NegotiationSession negotiationSession, OpponentModel model, Map<String, Double> parameters) {
+		super.init(negotiationSession, model, parameters);
+		if (parameters.get("t") != null) {
+			updateThreshold = parameters.get("t").doubleValue();
+		} else {
+			System.out.println("OMStrategy assumed t = 1.1");
+		}
+
+		initBlocks(OutcomeIndex.open(negotiationSession.getUtilitySpace()));
+	}
+
+	/**
+	 * Starts without any block, on the given outcomes
+	 */
+	void initBlocks(OutcomeIndex outcomes) {
+		this.outcomes = outcomes;
+		random = new Random();
+		blocks = new Block[(outcomes.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		values = new int[outcomes.getCodec().getNumberOfIssues()];
+	}
+
+	/**
+	 * @return the outcomes in the order of the positions of
+	 *         {@link #getBid(int, int)}
+	 */
+	public OutcomeIndex getOutcomeIndex() {
+		return outcomes;
+	}
+
+	/**
+	 * Returns the best bid for the opponent among the bids with a utility in
+	 * [utility - epsilon, utility + epsilon].
+	 *
+	 * @return bid to be offered to opponent, or null if there is no bid in the
+	 *         window
+	 */
+	public BidDetails getBid(double utility, double epsilon) {
+		return getBid(outcomes.firstAtMost(utility + epsilon),
+				outcomes.firstBelow(utility - epsilon));
+	}
+
+	/**
+	 * Returns the best bid for the opponent among the outcomes at positions
+	 * [from, to) of the outcome index.
+	 *
+	 * @return bid to be offered to opponent, or null if the range is empty
+	 */
+	public BidDetails getBid(int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		// 1. If there is only a single bid, return this bid
+		if (to - from == 1) {
+			return outcomes.getBidDetails(from);
+		}
+
+		// 2. Determine the best bid, the first one among equally good bids
+		long version = getModelVersion();
+		int first = from / BLOCK_SIZE;
+		int last = (to - 1) / BLOCK_SIZE;
+		int best = -1;
+		double bestScore = 0;
+		for (int b = first; b <= last; b++) {
+			Block block = getBlock(b, version);
+			int start = b * BLOCK_SIZE;
+			int local = block.best(b == first ? from - start : 0,
+					b == last ? to - start : block.scores.length);
+			if (best < 0 || block.scores[local] > bestScore) {
+				best = start + local;
+				bestScore = block.scores[local];
+			}
+		}
+
+		// 3. The opponent model did not work, therefore, offer a random bid.
+		if (bestScore <= 0.0001) {
+			return outcomes.getBidDetails(from + random.nextInt(to - from));
+		}
+		return outcomes.getBidDetails(best);
+	}
+
+	/**
+	 * Returns the best bid for the opponent given a set of similarly preferred
+	 * bids, by scoring every bid as {@link BestBid} does.
+	 *
+	 * @param list
+	 *            of the bids considered for offering.
+	 * @return bid to be offered to opponent.
+	 */
+	@Override
+	public BidDetails getBid(List<BidDetails> allBids) {
+		if (allBids.size() == 1) {
+			return allBids.get(0);
+		}
+		double bestUtil = -1;
+		BidDetails bestBid = allBids.get(0);
+		boolean allWereZero = true;
+		for (BidDetails bid : allBids) {
+			double evaluation = model.getBidEvaluation(bid.getBid());
+			if (evaluation > 0.0001) {
+				allWereZero = false;
+			}
+			if (evaluation > bestUtil) {
+				bestBid = bid;
+				bestUtil = evaluation;
+			}
+		}
+		if (allWereZero) {
+			return allBids.get(random.nextInt(allBids.size()));
+		}
+		return bestBid;
+	}
+
+	/**
+	 * @return a number which changes whenever the scores of the model may have
+	 *         changed
+	 */
+	protected long getModelVersion() {
+		if (model instanceof HardHeadedFrequencyModel) {
+			return ((HardHeadedFrequencyModel) model).getVersion();
+		}
+		return negotiationSession.getOpponentBidHistory().size();
+	}
+
+	/**
+	 * @return a block, allocated on its first use and scored again if the
+	 *         model changed since it was last scored
+	 */
+	private Block getBlock(int b, long version) {
+		Block block = blocks[b];
+		if (block == null) {
+			int start = b * BLOCK_SIZE;
+			block = new Block(Math.min(BLOCK_SIZE, outcomes.size() - start));
+			blocks[b] = block;
+		}
+		if (block.version != version) {
+			int start = b * BLOCK_SIZE;
+			HardHeadedFrequencyModel hardHeaded = model instanceof HardHeadedFrequencyModel
+					? (HardHeadedFrequencyModel) model
+					: null;
+			block.best = 0;
+			for (int position = 0; position < block.scores.length; position++) {
+				if (hardHeaded != null) {
+					block.scores[position] = hardHeaded
+							.getBidEvaluation(outcomes.getValues(start + position, values));
+				} else {
+					block.scores[position] = model.getBidEvaluation(outcomes.getBid(start + position));
+				}
+				if (block.scores[position] > block.scores[block.best]) {
+					block.best = position;
+				}
+			}
+			block.version = version;
+		}
+		return block;
+	}
+
+	/**
+	 * The opponent model may be updated, unless the time is higher than a given
+	 * constant.
+	 *
+	 * @return true if model may be updated.
+	 */
+	@Override
+	public boolean canUpdateOM() {
+		return negotiationSession.getTime() < updateThreshold;
+	}
+
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("t", 1.1, "Time after which the OM should not be updated"));
+		return set;
+	}
+
+	@Override
+	public String getName() {
+		return "Indexed BestBid example";
+	}
+}
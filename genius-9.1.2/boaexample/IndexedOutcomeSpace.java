@@ -0,0 +1,69 @@
+package boaexample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.misc.Range;
+import group10.OutcomeIndex;
+
+/**
+ * Outcome space of the negotiation session backed by an {@link OutcomeIndex},
+ * so the other BOA components can still look up bids through
+ * negotiationSession.getOutcomeSpace() without enumerating and sorting the
+ * outcomes a second time. Only getAllOutcomes() builds a list of all the
+ * outcomes, the first time it is called.
+ */
+public class IndexedOutcomeSpace extends OutcomeSpace {
+
+	private final OutcomeIndex outcomes;
+
+	public IndexedOutcomeSpace(OutcomeIndex outcomes) {
+		this.outcomes = outcomes;
+	}
+
+	public OutcomeIndex getOutcomeIndex() {
+		return outcomes;
+	}
+
+	/**
+	 * @return all the outcomes, from the highest to the lowest utility
+	 */
+	@Override
+	public List<BidDetails> getAllOutcomes() {
+		if (allBids == null || allBids.size() != outcomes.size()) {
+			List<BidDetails> bids = new ArrayList<BidDetails>(outcomes.size());
+			for (int i = 0; i < outcomes.size(); i++) {
+				bids.add(outcomes.getBidDetails(i));
+			}
+			allBids = bids;
+		}
+		return allBids;
+	}
+
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		return outcomes.getBidNearUtility(utility);
+	}
+
+	@Override
+	public int getIndexOfBidNearUtility(double utility) {
+		return outcomes.indexNearUtility(utility);
+	}
+
+	@Override
+	public List<BidDetails> getBidsinRange(Range range) {
+		return outcomes.getBidsInRange(range.getLowerbound(), range.getUpperbound());
+	}
+
+	@Override
+	public BidDetails getMaxBidPossible() {
+		return outcomes.getBidDetails(0);
+	}
+
+	@Override
+	public BidDetails getMinBidPossible() {
+		return outcomes.getBidDetails(outcomes.size() - 1);
+	}
+}
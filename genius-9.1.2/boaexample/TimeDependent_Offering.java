@@ -1,6 +1,8 @@
 package boaexample;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,7 +13,8 @@ import genius.core.boaframework.NoModel;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
-import genius.core.boaframework.SortedOutcomeSpace;
+import group10.ConcessionSchedule;
+import group10.OutcomeIndex;
 
 /**
  * This is an abstract class used to implement a TimeDependentAgent Strategy
@@ -24,6 +27,9 @@ import genius.core.boaframework.SortedOutcomeSpace;
  * Note that this agent is not fully equivalent to the theoretical model,
  * loading the domain may take some time, which may lead to the agent skipping
  * the first bid. A better implementation is GeniusTimeDependent_Offering.
+ * 
+ * The outcome space is a group10.OutcomeIndex, so this example builds with
+ * the sources of src/ (see ExampleAgent.iml).
  */
 public class TimeDependent_Offering extends OfferingStrategy {
 
@@ -37,8 +43,20 @@ public class TimeDependent_Offering extends OfferingStrategy {
 	private double Pmin;
 	/** Concession factor */
 	private double e;
-	/** Outcome space */
-	private SortedOutcomeSpace outcomespace;
+	/** Outcome space, sorted once per profile and shared between sessions */
+	private OutcomeIndex outcomespace;
+	/**
+	 * Positions of the outcome space near the target utility over time, to
+	 * narrow the searches of a turn
+	 */
+	private ConcessionSchedule schedule;
+	/**
+	 * Number of time buckets of the schedule, the utility above the target
+	 * they cover and their largest span
+	 */
+	static final int SCHEDULE_BUCKETS = 100;
+	static final double SCHEDULE_MARGIN = 0.01;
+	static final int SCHEDULE_SPAN = 64;
 
 	/**
 	 * Method which initializes the agent by setting all parameters. The
@@ -51,8 +69,8 @@ public class TimeDependent_Offering extends OfferingStrategy {
 		if (parameters.get("e") != null) {
 			this.negotiationSession = negoSession;
 
-			outcomespace = new SortedOutcomeSpace(negotiationSession.getUtilitySpace());
-			negotiationSession.setOutcomeSpace(outcomespace);
+			outcomespace = OutcomeIndex.open(negotiationSession.getUtilitySpace());
+			negotiationSession.setOutcomeSpace(new IndexedOutcomeSpace(outcomespace));
 
 			this.e = parameters.get("e");
 
@@ -64,15 +82,21 @@ public class TimeDependent_Offering extends OfferingStrategy {
 			if (parameters.get("min") != null)
 				this.Pmin = parameters.get("min");
 			else
-				this.Pmin = negoSession.getMinBidinDomain().getMyUndiscountedUtil();
+				this.Pmin = outcomespace.getUtility(outcomespace.size() - 1);
 
 			if (parameters.get("max") != null) {
 				Pmax = parameters.get("max");
 			} else {
-				BidDetails maxBid = negoSession.getMaxBidinDomain();
-				Pmax = maxBid.getMyUndiscountedUtil();
+				Pmax = outcomespace.getUtility(0);
 			}
 
+			schedule = new ConcessionSchedule(outcomespace, SCHEDULE_BUCKETS, SCHEDULE_MARGIN, SCHEDULE_SPAN) {
+				@Override
+				protected double target(double time) {
+					return p(time);
+				}
+			};
+
 			this.opponentModel = model;
 			this.omStrategy = oms;
 		} else {
@@ -103,13 +127,49 @@ public class TimeDependent_Offering extends OfferingStrategy {
 
 		// if there is no opponent model available
 		if (opponentModel instanceof NoModel) {
-			nextBid = negotiationSession.getOutcomeSpace().getBidNearUtility(utilityGoal);
+			nextBid = outcomespace.getBidDetails(schedule.indexNearTarget(time));
 		} else {
-			nextBid = omStrategy.getBid(outcomespace, utilityGoal);
+			// The bids with a utility in [utilityGoal, upper bound], as
+			// positions [from, to) of the outcome space
+			int to = schedule.firstBelow(utilityGoal, time);
+			int from = getWindowStart(utilityGoal, time, to);
+			if (from >= to) {
+				nextBid = outcomespace.getBidDetails(0);
+			} else if (omStrategy instanceof IndexedBestBid) {
+				nextBid = ((IndexedBestBid) omStrategy).getBid(from, to);
+			} else {
+				List<BidDetails> bids = new ArrayList<BidDetails>(to - from);
+				for (int i = from; i < to; i++) {
+					bids.add(outcomespace.getBidDetails(i));
+				}
+				nextBid = omStrategy.getBid(bids);
+			}
 		}
 		return nextBid;
 	}
 
+	/**
+	 * Finds the upper end of the window of bids with a utility in
+	 * [utilityGoal, utilityGoal + 0.01], widening the window by 0.01 until it
+	 * is not empty.
+	 * 
+	 * @param utilityGoal
+	 *            lower bound of the window
+	 * @param to
+	 *            position of the first bid below the utility goal
+	 * @return the position of the first bid in the window, at least to if no
+	 *         bid is found this way
+	 */
+	private int getWindowStart(double utilityGoal, double time, int to) {
+		double upperBound = utilityGoal + 0.01;
+		int from = schedule.firstAtMost(upperBound, time);
+		while (from >= to && upperBound < 1.01) {
+			upperBound += 0.01;
+			from = outcomespace.firstAtMost(upperBound);
+		}
+		return from;
+	}
+
 	/**
 	 * From [1]:
 	 * 
@@ -1,8 +1,6 @@
 package storageexample;
 
 import java.util.List;
-
-import java.util.HashMap;
 import java.util.Map;
 
 import genius.core.AgentID;
@@ -10,22 +8,21 @@ import genius.core.Bid;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
-import genius.core.list.Tuple;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.persistent.PersistentDataType;
-import genius.core.persistent.StandardInfo;
 import genius.core.persistent.StandardInfoList;
 
 /**
  * Sample party that accepts the Nth offer, where N is the number of sessions
- * this [agent-profile] already did.
+ * this [agent-profile] already did. What it learned about the other parties is
+ * kept in {@link PartyProfiles}.
  */
 public class GroupX extends AbstractNegotiationParty {
 
 	private Bid lastReceivedBid = null;
 	private int nrChosenActions = 0; // number of times chosenAction was called.
-	private StandardInfoList history;
+	private PartyProfiles profiles;
 
 	@Override
 	public void init(NegotiationInfo info) {
@@ -35,29 +32,27 @@ public class GroupX extends AbstractNegotiationParty {
 		System.out.println("Discount Factor is " + getUtilitySpace().getDiscountFactor());
 		System.out.println("Reservation Value is " + getUtilitySpace().getReservationValueUndiscounted());
 
-		if (getData().getPersistentDataType() != PersistentDataType.STANDARD) {
-			throw new IllegalStateException("need standard persistent data");
-		}
-		history = (StandardInfoList) getData().get();
-
-		if (!history.isEmpty()) {
-			// example of using the history. Compute for each party the maximum
-			// utility of the bids in last session.
-			Map<String, Double> maxutils = new HashMap<String, Double>();
-			StandardInfo lastinfo = history.get(history.size() - 1);
-			for (Tuple<String, Double> offered : lastinfo.getUtilities()) {
-				String party = offered.get1();
-				Double util = offered.get2();
-				maxutils.put(party, maxutils.containsKey(party) ? Math.max(maxutils.get(party), util) : util);
+		switch (getData().getPersistentDataType()) {
+		case STANDARD:
+			profiles = PartyProfiles.fromHistory(getUtilitySpace().getFileName(), getSelf(),
+					(StandardInfoList) getData().get());
+			break;
+		case SERIALIZABLE:
+			// null in the first session
+			profiles = (PartyProfiles) getData().get();
+			if (profiles == null) {
+				profiles = new PartyProfiles();
 			}
-			System.out.println(maxutils); // notice tournament suppresses all
-											// output.
+			break;
+		default:
+			throw new IllegalStateException("need standard or serializable persistent data");
 		}
+		System.out.println(profiles); // notice tournament suppresses all output.
 	}
 
 	public Action chooseAction(List<Class<? extends Action>> validActions) {
 		nrChosenActions++;
-		if (nrChosenActions > history.size() & lastReceivedBid != null) {
+		if (nrChosenActions > profiles.getSessions() & lastReceivedBid != null) {
 			return new Accept(getPartyId(), lastReceivedBid);
 		} else {
 			return new Offer(getPartyId(), generateRandomBid());
@@ -69,7 +64,27 @@ public class GroupX extends AbstractNegotiationParty {
 		super.receiveMessage(sender, action);
 		if (action instanceof Offer) {
 			lastReceivedBid = ((Offer) action).getBid();
+			// With standard data, genius records the offers itself
+			if (sender != null && getData().getPersistentDataType() == PersistentDataType.SERIALIZABLE) {
+				profiles.addOffer(sender.getName(), lastReceivedBid, getUtility(lastReceivedBid));
+			}
+		}
+	}
+
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid) {
+		if (getData().getPersistentDataType() == PersistentDataType.SERIALIZABLE) {
+			profiles.endSession(acceptedBid, acceptedBid == null ? 0 : getUtility(acceptedBid), null, getSelf());
+			getData().put(profiles);
 		}
+		return super.negotiationEnded(acceptedBid);
+	}
+
+	/**
+	 * @return the name of this agent in the profiles
+	 */
+	private String getSelf() {
+		return PartyProfiles.partyName(getPartyId().getName());
 	}
 
 	public String getDescription() {
@@ -0,0 +1,396 @@
+package storageexample;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import genius.core.Bid;
+import genius.core.issue.Issue;
+import genius.core.list.Tuple;
+import genius.core.persistent.StandardInfo;
+import genius.core.persistent.StandardInfoList;
+
+/**
+ * What we learned about each other party over the past sessions: how fast it
+ * concedes, the utilities of the agreements reached with it and how often it
+ * used each value in its offers and in the agreements. Our own agent, named
+ * self below, is never profiled, so another party running the same agent is
+ * not profiled either. Sessions are folded in one at a time, so an agent gets its
+ * priors without replaying the history of every past session.
+ *
+ * With SERIALIZABLE persistent data, the profiles are stored as they are,
+ * written in a compact binary format. With STANDARD persistent data, which
+ * cannot be written, the profiles are rebuilt from the StandardInfoList, and
+ * cached so that each session only folds the sessions added since. A cached
+ * entry is rebuilt when the history is shorter or starts with another session,
+ * which is a new tournament.
+ */
+public class PartyProfiles implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	/** Version of the binary format */
+	private static final int FORMAT = 1;
+
+	/** Profiles folded from standard histories, by the file of our profile */
+	private static final Map<String, PartyProfiles> cache = new HashMap<String, PartyProfiles>();
+
+	/** Identity of the first session of a cached standard history */
+	private transient String firstSession;
+	private transient int sessions;
+	private transient Map<String, PartyProfile> parties;
+	/** Offers of the running session: count, first, last and max utility */
+	private transient Map<String, double[]> session;
+
+	public PartyProfiles() {
+		parties = new LinkedHashMap<String, PartyProfile>();
+		session = new HashMap<String, double[]>();
+	}
+
+	/**
+	 * Returns the profiles of a standard history, folding only the sessions
+	 * added since the last call with the same key and the same first session.
+	 *
+	 * @param key
+	 *            identifies the agent profile owning the history
+	 * @param self
+	 *            the name of our agent, see {@link #partyName(String)}
+	 * @param history
+	 *            the standard persistent data
+	 */
+	public static PartyProfiles fromHistory(String key, String self, StandardInfoList history) {
+		synchronized (cache) {
+			String first = history.isEmpty() ? null : identity(history.get(0));
+			String cacheKey = key + "|" + self;
+			PartyProfiles profiles = cache.get(cacheKey);
+			// A shorter history, or one starting with another session, is a
+			// new tournament
+			if (profiles == null || profiles.sessions > history.size()
+					|| (profiles.sessions > 0 && !profiles.firstSession.equals(first))) {
+				profiles = new PartyProfiles();
+				cache.put(cacheKey, profiles);
+			}
+			if (profiles.sessions == 0) {
+				profiles.firstSession = first;
+			}
+			for (int s = profiles.sessions; s < history.size(); s++) {
+				profiles.fold(history.get(s), self);
+			}
+			return profiles;
+		}
+	}
+
+	/**
+	 * @return a string telling sessions apart: the parties and their
+	 *         profiles, the starting party, the number of offers and the
+	 *         agreement
+	 */
+	private static String identity(StandardInfo info) {
+		Tuple<Bid, Double> agreement = info.getAgreement();
+		return info.getAgentProfiles() + "|" + info.getStartingAgent() + "|" + info.getUtilities().size() + "|"
+				+ (agreement == null ? null : agreement.get1() + "=" + agreement.get2());
+	}
+
+	/**
+	 * @return the number of sessions folded
+	 */
+	public int getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * @return the profile of a party, or null if it was never seen
+	 */
+	public PartyProfile get(String party) {
+		return parties.get(partyName(party));
+	}
+
+	public Collection<PartyProfile> getProfiles() {
+		return parties.values();
+	}
+
+	/**
+	 * Folds a past session given by the standard persistent data. Only the
+	 * agreement shows which values were used.
+	 *
+	 * @param self
+	 *            the name of our agent, whose offers are skipped
+	 */
+	public void fold(StandardInfo info, String self) {
+		for (Tuple<String, Double> offered : info.getUtilities()) {
+			if (!partyName(offered.get1()).equals(self)) {
+				addOffer(offered.get1(), null, offered.get2());
+			}
+		}
+		Tuple<Bid, Double> agreement = info.getAgreement();
+		endSession(agreement == null ? null : agreement.get1(),
+				agreement == null ? 0 : agreement.get2(), info.getAgentProfiles().keySet(), self);
+	}
+
+	/**
+	 * Counts an offer of the running session
+	 *
+	 * @param party
+	 *            the party which made the offer
+	 * @param bid
+	 *            the offer, or null if only its utility is known
+	 * @param utility
+	 *            our utility of the offer
+	 */
+	public void addOffer(String party, Bid bid, double utility) {
+		String name = partyName(party);
+		double[] offers = session.get(name);
+		if (offers == null) {
+			offers = new double[] { 0, utility, utility, utility };
+			session.put(name, offers);
+		}
+		offers[0]++;
+		offers[2] = utility;
+		offers[3] = Math.max(offers[3], utility);
+		if (bid != null) {
+			PartyProfile profile = profile(name);
+			PartyProfile.countValues(bid, profile.valueCounts);
+		}
+	}
+
+	/**
+	 * Folds the offers of the running session into the profiles
+	 *
+	 * @param agreement
+	 *            the accepted bid, or null without agreement
+	 * @param utility
+	 *            our utility of the agreement
+	 * @param participants
+	 *            the parties of the session, or null for the parties which
+	 *            made offers
+	 * @param self
+	 *            the name of our agent, which gets no agreement
+	 */
+	public void endSession(Bid agreement, double utility, Collection<String> participants, String self) {
+		for (Map.Entry<String, double[]> entry : session.entrySet()) {
+			double[] offers = entry.getValue();
+			profile(entry.getKey()).addSession((int) offers[0], offers[1], offers[2], offers[3]);
+		}
+		if (agreement != null) {
+			for (String party : participants != null ? participants : session.keySet()) {
+				String name = partyName(party);
+				if (name.equals(self)) {
+					continue;
+				}
+				PartyProfile profile = profile(name);
+				profile.agreements++;
+				profile.agreementUtilitySum += utility;
+				PartyProfile.countValues(agreement, profile.agreementValueCounts);
+			}
+		}
+		session.clear();
+		sessions++;
+	}
+
+	private PartyProfile profile(String name) {
+		PartyProfile profile = parties.get(name);
+		if (profile == null) {
+			profile = new PartyProfile(name);
+			parties.put(name, profile);
+		}
+		return profile;
+	}
+
+	/**
+	 * @return the name of a party without the number of its session, e.g.
+	 *         Boulware for Boulware@3
+	 */
+	public static String partyName(String party) {
+		int at = party.lastIndexOf('@');
+		if (at > 0 && at < party.length() - 1) {
+			for (int c = at + 1; c < party.length(); c++) {
+				if (!Character.isDigit(party.charAt(c))) {
+					return party;
+				}
+			}
+			return party.substring(0, at);
+		}
+		return party;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.writeInt(FORMAT);
+		out.writeInt(sessions);
+		out.writeInt(parties.size());
+		for (PartyProfile profile : parties.values()) {
+			profile.write(out);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException {
+		int format = in.readInt();
+		if (format != FORMAT) {
+			throw new IOException("Unknown party profile format " + format);
+		}
+		sessions = in.readInt();
+		int size = in.readInt();
+		parties = new LinkedHashMap<String, PartyProfile>(2 * size);
+		session = new HashMap<String, double[]>();
+		for (int p = 0; p < size; p++) {
+			PartyProfile profile = PartyProfile.read(in);
+			parties.put(profile.name, profile);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return sessions + " sessions " + parties.values();
+	}
+
+	/**
+	 * What we learned about one party
+	 */
+	public static class PartyProfile {
+		private final String name;
+		private int sessions;
+		private int offers;
+		private double lastMaxUtility;
+		// Sum of the change of our utility per offer, over the sessions with
+		// at least two offers
+		private int slopes;
+		private double slopeSum;
+		private int agreements;
+		private double agreementUtilitySum;
+		// Number of times each value was used in the offers and in the
+		// agreements, by issue number and value
+		private final Map<String, Integer> valueCounts = new HashMap<String, Integer>();
+		private final Map<String, Integer> agreementValueCounts = new HashMap<String, Integer>();
+
+		PartyProfile(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of sessions in which the party made offers
+		 */
+		public int getSessions() {
+			return sessions;
+		}
+
+		public int getOffers() {
+			return offers;
+		}
+
+		/**
+		 * @return our highest utility of the offers of the party in the last
+		 *         session it made offers
+		 */
+		public double getLastMaxUtility() {
+			return lastMaxUtility;
+		}
+
+		/**
+		 * @return the mean increase of our utility per offer of the party, 0 if
+		 *         unknown
+		 */
+		public double getConcessionRate() {
+			return slopes == 0 ? 0 : slopeSum / slopes;
+		}
+
+		public int getAgreements() {
+			return agreements;
+		}
+
+		/**
+		 * @return our mean utility of the agreements with the party, 0 if none
+		 */
+		public double getMeanAgreementUtility() {
+			return agreements == 0 ? 0 : agreementUtilitySum / agreements;
+		}
+
+		/**
+		 * @return the number of times the party used a value in its offers
+		 */
+		public int getValueCount(int issueNumber, String value) {
+			Integer count = valueCounts.get(issueNumber + ":" + value);
+			return count == null ? 0 : count;
+		}
+
+		/**
+		 * @return the number of agreements with the party which used a value
+		 */
+		public int getAgreementValueCount(int issueNumber, String value) {
+			Integer count = agreementValueCounts.get(issueNumber + ":" + value);
+			return count == null ? 0 : count;
+		}
+
+		private void addSession(int count, double first, double last, double max) {
+			sessions++;
+			offers += count;
+			lastMaxUtility = max;
+			if (count > 1) {
+				slopes++;
+				slopeSum += (last - first) / (count - 1);
+			}
+		}
+
+		private static void countValues(Bid bid, Map<String, Integer> counts) {
+			for (Issue issue : bid.getIssues()) {
+				String key = issue.getNumber() + ":" + bid.getValue(issue.getNumber());
+				Integer count = counts.get(key);
+				counts.put(key, count == null ? 1 : count + 1);
+			}
+		}
+
+		private void write(ObjectOutputStream out) throws IOException {
+			out.writeUTF(name);
+			out.writeInt(sessions);
+			out.writeInt(offers);
+			out.writeDouble(lastMaxUtility);
+			out.writeInt(slopes);
+			out.writeDouble(slopeSum);
+			out.writeInt(agreements);
+			out.writeDouble(agreementUtilitySum);
+			writeCounts(out, valueCounts);
+			writeCounts(out, agreementValueCounts);
+		}
+
+		private static void writeCounts(ObjectOutputStream out, Map<String, Integer> counts) throws IOException {
+			out.writeInt(counts.size());
+			for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+		}
+
+		private static PartyProfile read(ObjectInputStream in) throws IOException {
+			PartyProfile profile = new PartyProfile(in.readUTF());
+			profile.sessions = in.readInt();
+			profile.offers = in.readInt();
+			profile.lastMaxUtility = in.readDouble();
+			profile.slopes = in.readInt();
+			profile.slopeSum = in.readDouble();
+			profile.agreements = in.readInt();
+			profile.agreementUtilitySum = in.readDouble();
+			readCounts(in, profile.valueCounts);
+			readCounts(in, profile.agreementValueCounts);
+			return profile;
+		}
+
+		private static void readCounts(ObjectInputStream in, Map<String, Integer> counts) throws IOException {
+			int size = in.readInt();
+			for (int v = 0; v < size; v++) {
+				counts.put(in.readUTF(), in.readInt());
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name + "[sessions=" + sessions + ", lastMaxUtility=" + lastMaxUtility + ", concessionRate="
+					+ getConcessionRate() + ", meanAgreementUtility=" + getMeanAgreementUtility() + "]";
+		}
+	}
+}
@@ -1,18 +1,34 @@
 package uncertaintyexample;
 
 import java.util.List;
+import java.util.Random;
 
 import genius.core.Bid;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
 import genius.core.parties.AbstractNegotiationParty;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
+import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.ExperimentalUserModel;
 import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import group10.BidRankIndex;
+import group10.RankEstimator;
+import group10.RankFitter;
 
 public class UncertaintyAgentExample extends AbstractNegotiationParty {
 
+	// Fraction of the session deadline the fit of the user model may take
+	private static final double ESTIMATION_SHARE = 0.01;
+	// Time the fit may take when the deadline is in rounds, whose length in
+	// time is unknown
+	private static final long ROUNDS_ESTIMATION_MILLIS = 500;
+
+	// Ranks of the bids of the user model, built at the first offer
+	private BidRankIndex rankIndex;
+
 	@Override
 	public Action chooseAction(List<Class<? extends Action>> possibleActions) {
 		log("This is the UncertaintyAgentExample.");
@@ -37,15 +53,19 @@ public class UncertaintyAgentExample extends AbstractNegotiationParty {
 		// in the user model
 		if (getLastReceivedAction() instanceof Offer) {
 			Bid receivedBid = ((Offer) getLastReceivedAction()).getBid();
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+			if (rankIndex == null) {
+				rankIndex = new BidRankIndex(getDomain(),
+						userModel.getBidRanking());
+			}
 
 			// If the rank of the received bid is known
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
+			if (rankIndex.contains(receivedBid)) {
+				double percentile = rankIndex.getPercentile(receivedBid);
 				if (percentile < 0.1)
 					return new Accept(getPartyId(), receivedBid);
+			} else {
+				log("The estimated percentile of the received bid is: "
+						+ rankIndex.estimatePercentile(receivedBid));
 			}
 		}
 
@@ -60,11 +80,48 @@ public class UncertaintyAgentExample extends AbstractNegotiationParty {
 	/**
 	 * With this method, you can override the default estimate of the utility
 	 * space given uncertain preferences specified by the user model. This
-	 * example sets every value to zero.
+	 * example fits the value scores to the pairwise order of the ranked bids
+	 * within a time budget, and keeps the rank-sum heuristic instead if it
+	 * agrees better with the ranking.
 	 */
 	@Override
 	public AbstractUtilitySpace estimateUtilitySpace() {
-		return new AdditiveUtilitySpaceFactory(getDomain()).getUtilitySpace();
+		BidRanking ranking = userModel.getBidRanking();
+		long deadline = System.nanoTime() + getEstimationNanos();
+		AdditiveUtilitySpace fitted = new RankFitter(getDomain(), ranking)
+				.estimate(deadline);
+		AdditiveUtilitySpace heuristic = RankEstimator.estimate(getDomain(),
+				ranking);
+
+		List<Bid> bidOrder = ranking.getBidOrder();
+		double fittedAgreement = RankFitter.agreement(fitted, bidOrder);
+		double heuristicAgreement = RankFitter.agreement(heuristic, bidOrder);
+		log("Agreement with the ranking, fitted: " + fittedAgreement
+				+ ", rank-sum: " + heuristicAgreement);
+
+		if (userModel instanceof ExperimentalUserModel) {
+			AbstractUtilitySpace realUSpace = ((ExperimentalUserModel) userModel)
+					.getRealUtilitySpace();
+			log("Agreement with the real utility space, fitted: "
+					+ RankFitter.accuracy(fitted, realUSpace, new Random(0))
+					+ ", rank-sum: "
+					+ RankFitter.accuracy(heuristic, realUSpace, new Random(0)));
+		}
+
+		return fittedAgreement >= heuristicAgreement ? fitted : heuristic;
+	}
+
+	/**
+	 * @return the time the fit of the user model may take, a small fraction of
+	 *         the deadline of the session
+	 */
+	private long getEstimationNanos() {
+		TimeLineInfo timeline = getTimeLine();
+		if (timeline == null || timeline.getType() != Timeline.Type.Time) {
+			return ROUNDS_ESTIMATION_MILLIS * 1000000L;
+		}
+		// The total time is in seconds
+		return (long) (ESTIMATION_SHARE * timeline.getTotalTime() * 1e9);
 	}
 
 	@Override
@@ -1,23 +1,24 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
-import agents.org.apache.commons.lang.ArrayUtils;
 import genius.core.AgentID;
 import genius.core.Bid;
-import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
 import genius.core.uncertainty.BidRanking;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.EvaluatorDiscrete;
+import group10.BidCodec;
+import group10.CompiledEvaluator;
+import group10.NashChains;
+import group10.RankEstimator;
 
 public class Agent26 extends AbstractNegotiationParty {
 
@@ -27,80 +28,141 @@ public class Agent26 extends AbstractNegotiationParty {
     // *************** Private Class used to predict the opponent model *******************
     // ************************************************************************************
 
-    //Design an opponent model
-    private class OpponentModel {
-        private double Issues [][];
+    //Design an opponent model, package-private for the benchmarks
+    //The rankings are kept up to date as the frequencies are counted, so updateModel only recomputes what changed
+    //Every table holds the values of all issues one after the other, issue i starting at value_offsets[i]
+    class OpponentModel {
+        private double Issues [];
         private double Weights [];
-        public int frequency [][];
+        public int frequency [];
         private int N_issues;
-        private int N_values;
+        private int value_offsets [];
         private int maximum_freqs [];
         private int weight_ranking[];
-        private int value_ranking[];
+        //Issues sorted by maximum frequency from high to low, ties keep the issue order
+        private int issue_order[];
+        //Values of each issue sorted by frequency from low to high, and the position of each value
+        private int value_order[];
+        private int value_position[];
+        //What changed since the last updateModel
+        private boolean changed_issues[];
+        private boolean weights_changed;
 
         //Initial opponentModel
-        public OpponentModel(int num_issues, int num_values, int [][] freq) {
-            Issues = new double [num_issues][num_values]; //Initial opponentModel
-            Weights = new double [num_issues]; //每一个issues一个weight
-            frequency = freq; //2D array
-            N_issues = num_issues; //the number of issues
-            N_values = num_values; //the number of values for each issues
+        public OpponentModel(int [] num_values) {
+            N_issues = num_values.length; //the number of issues
+            value_offsets = new int[N_issues + 1];
+            for(int i = 0; i < N_issues; i++) {
+                value_offsets[i + 1] = value_offsets[i] + num_values[i]; //the number of values for each issues
+            }
+            Issues = new double [value_offsets[N_issues]]; //Initial opponentModel
+            Weights = new double [N_issues]; //每一个issues一个weight
+            frequency = new int [value_offsets[N_issues]];
             maximum_freqs = new int[N_issues];
             weight_ranking = new int [N_issues];
-            value_ranking = new int [N_values];
+            issue_order = new int [N_issues];
+            value_order = new int [value_offsets[N_issues]];
+            value_position = new int [value_offsets[N_issues]];
+            changed_issues = new boolean [N_issues];
+
+            for(int i = 0; i < N_issues; i++) {
+                maximum_freqs[i] = 1; //a maximum of 0 counts as 1
+                for(int j = 0; j < num_values[i]; j++) {
+                    value_order[value_offsets[i] + j] = j;
+                    value_position[value_offsets[i] + j] = j;
+                }
+                issue_order[i] = i;
+                weight_ranking[i] = N_issues - i;
+                changed_issues[i] = true;
+            }
+            weights_changed = true;
         }
 
-        //update the opponent model
-        public void updateModel() {
-            //System.out.println("");
-            int j = 0;
-            int k = 0;
-            int i = 0;
-            for(i = 0; i < N_issues; i++) {
-                maximum_freqs[i] = Collections.max(Arrays.asList(ArrayUtils.toObject(frequency[i])));
-                if(maximum_freqs[i] == 0) {
-                    maximum_freqs[i] = 1;
-                }
+        public int getNumberOfValues(int issue_index) {
+            return value_offsets[issue_index + 1] - value_offsets[issue_index];
+        }
 
-                //根据得到的频率排列issues的顺序，weight ranking[]
-                weight_ranking[i] = N_issues-i;
-                j = i - 1; //从第二个开始，对每一个和前一个的频率进行比较
-                while(j != -1) {
-                    if(maximum_freqs[i] > maximum_freqs[j]) {
-                        weight_ranking[i] = Math.max(weight_ranking[j], weight_ranking[i]); //频率大的排在前面
-                        weight_ranking[j]--; //频率小的排在后边
-                    }
-                    j--; //为了遍历所有frequency值，跳出while循环
+        //Number of times the opponent offered a value
+        public int getFrequency(int issue_index, int value_index) {
+            return frequency[value_offsets[issue_index] + value_index];
+        }
+
+        //Count an offer given as value indices
+        public void addBid(int[] values) {
+            for(int i = 0; i < N_issues; i++) {
+                int base = value_offsets[i];
+                int end = value_offsets[i + 1];
+                int value = values[i];
+                int count = frequency[base + value];
+
+                //Move the value after the others with the same frequency, so it stays sorted once counted
+                int from = base + value_position[base + value];
+                int to = from;
+                while(to + 1 < end && frequency[base + value_order[to + 1]] == count) {
+                    to++;
                 }
-                //System.out.format("\nIndex %d, Maximum Frequency = %d\n", i, maximum_freqs[i]);
-
-                //排好issues以后对地i个issues里的value进行排序，同样根据频率
-                for(j = 0; j < N_values; j++) {
-                    value_ranking[j] = N_values-j;
-                    k = j - 1;
-                    while(k != -1) {
-                        if(frequency[i][j] > frequency[i][k]) {
-                            value_ranking[j]++; //频率大的排在前面
-                            value_ranking[k]--; //频率大的排在前面
-                        }
-                        if(frequency[i][j] == frequency[i][k]) {
-                            value_ranking[k]--;
-                            value_ranking[j] = Math.min(value_ranking[k], value_ranking[j]);
-                        }
-                        k--; //为了遍历所有frequency值，跳出while循环
-                    }
+                int other = value_order[to];
+                value_order[from] = other;
+                value_position[base + other] = from - base;
+                value_order[to] = value;
+                value_position[base + value] = to - base;
+
+                frequency[base + value]++;
+                changed_issues[i] = true;
+
+                if(frequency[base + value] > maximum_freqs[i]) {
+                    maximum_freqs[i] = frequency[base + value];
+                    moveUp(i);
+                    weights_changed = true;
                 }
+            }
+        }
 
-                //issues[i][j]是第i个issues里有j个value
-                //对values赋值
-                for(j = 0; j < N_values; j++) {
-                    Issues[i][j] = value_ranking[j]*1.0/N_values;
+        //Move an issue whose maximum frequency grew before the issues it now beats
+        private void moveUp(int issue) {
+            int position = 0;
+            while(issue_order[position] != issue) {
+                position++;
+            }
+            while(position > 0) {
+                int previous = issue_order[position - 1];
+                if(maximum_freqs[previous] > maximum_freqs[issue]
+                        || (maximum_freqs[previous] == maximum_freqs[issue] && previous < issue)) {
+                    break;
                 }
+                issue_order[position] = previous;
+                weight_ranking[previous] = N_issues - position;
+                position--;
+            }
+            issue_order[position] = issue;
+            weight_ranking[issue] = N_issues - position;
+        }
+
+        //update the opponent model
+        public void updateModel() {
+            for(int i = 0; i < N_issues; i++) {
+                if(!changed_issues[i]) {
+                    continue;
+                }
+                //The rank of a value is one more than the number of values with a lower frequency
+                int base = value_offsets[i];
+                int num_values = getNumberOfValues(i);
+                int rank = 1;
+                for(int j = 0; j < num_values; j++) {
+                    if(j > 0 && frequency[base + value_order[base + j]] != frequency[base + value_order[base + j - 1]]) {
+                        rank = j + 1;
+                    }
+                    Issues[base + value_order[base + j]] = rank*1.0/num_values;
+                }
+                changed_issues[i] = false;
             }
 
             //每一个issues对应一个weight值
-            for(i = 0; i < N_issues; i++) {
-                Weights[i] = 2.0*weight_ranking[i]/(N_issues*(N_issues+1.0));
+            if(weights_changed) {
+                for(int i = 0; i < N_issues; i++) {
+                    Weights[i] = 2.0*weight_ranking[i]/(N_issues*(N_issues+1.0));
+                }
+                weights_changed = false;
             }
         }
 
@@ -110,19 +172,28 @@ public class Agent26 extends AbstractNegotiationParty {
             double U = 0.0;
             for(Issue issue: bid.getIssues()) {
                 U = U +
-                        Issues[issue.getNumber()-1][((IssueDiscrete) issue).getValueIndex((ValueDiscrete)(bid.getValue(issue.getNumber())))] *
+                        Issues[value_offsets[issue.getNumber()-1] + ((IssueDiscrete) issue).getValueIndex((ValueDiscrete)(bid.getValue(issue.getNumber())))] *
                                 Weights[issue.getNumber()-1];
             }
             //System.out.format("\n\nPredicted utility = %f", U);
             return U;
         }
 
+        //Same prediction for a bid encoded as value indices, the issue position is the issue number - 1
+        public double predictUtility(int[] values) {
+            double U = 0.0;
+            for(int i = 0; i < N_issues; i++) {
+                U = U + Issues[value_offsets[i] + values[i]] * Weights[i];
+            }
+            return U;
+        }
+
 
         //Get the maximum value for 第issue_index个issue
         public int getIssueMaxValueIndex(int issue_index) {
             int max_index = 0;
-            for(int i = 0; i < N_values; i++) {
-                if(Issues[issue_index][max_index] < Issues[issue_index][i]) {
+            for(int i = 0; i < getNumberOfValues(issue_index); i++) {
+                if(getIssueValue(issue_index, max_index) < getIssueValue(issue_index, i)) {
                     max_index = i;
                 }
             }
@@ -131,20 +202,33 @@ public class Agent26 extends AbstractNegotiationParty {
 
         //get each value for every issue
         public double getIssueValue(int issue_index, int value_index) {
-            return Issues[issue_index][value_index];
+            return Issues[value_offsets[issue_index] + value_index];
         }
 
         //get each value for every issue
         public double getWeight(int issue_index) {
             return Weights[issue_index];
         }
+
+        //Copy the model into the flat arrays used by the annealer
+        public void compile(CompiledEvaluator into) {
+            for(int i = 0; i < N_issues; i++) {
+                into.setWeight(i, Weights[i]);
+                for(int j = 0; j < getNumberOfValues(i); j++) {
+                    into.setScore(i, j, getIssueValue(i, j));
+                }
+            }
+        }
     };
 
     // **************************************************************************************************
     // **************************************************************************************************
 
-    private OpponentModel opponentA;
-    private OpponentModel opponentB;
+    //One model per opponent, created with all its storage the first time the opponent acts
+    private Map<AgentID, OpponentModel> opponents = new HashMap<AgentID, OpponentModel>();
+    //The compiled copy of each model read by the Nash search, in the order the opponents were met
+    private List<OpponentModel> opponent_models = new ArrayList<OpponentModel>();
+    private CompiledEvaluator[] opponentEvaluators = new CompiledEvaluator[0];
 
     private Bid lastReceivedOffer; // offer on the table
     private Bid myLastOffer;
@@ -158,11 +242,9 @@ public class Agent26 extends AbstractNegotiationParty {
     private double b;
 
     //for collecting opponent data
-    private int hashcode_a;
-    private int hashcode_b;
+    private int[] offer_values; //value index of each issue of the offer being counted
     private int number_of_issues; // introduced this to aid in simulated annealing process ..
 
-    private 	int max_num_of_values;
 
     Bid curr_bid ;
 
@@ -176,9 +258,18 @@ public class Agent26 extends AbstractNegotiationParty {
     AbstractUtilitySpace utilitySpace;
     AdditiveUtilitySpace additiveUtilitySpace;
 
-    // Two dimensional array, number of issues times number of max number of values ...
-    int freq_a [][];
-    //int freq_b [][];
+    //Bids are handled as value indices internally and only turned into a Bid when offered
+    BidCodec codec;
+    CompiledEvaluator ownEvaluator;
+    NashChains nashChains;
+
+    //The Nash search may use this fraction of a turn, a turn is measured between two calls of chooseAction,
+    //and this fraction of the negotiation time left
+    double nash_time_fraction = 0.5;
+    long session_start;
+    long last_turn_start;
+    double average_turn_nanos = 100e6;
+
     double max_weight = 0; //让max最小，min最大以便更新
     double min_weight = 1;
 
@@ -189,15 +280,28 @@ public class Agent26 extends AbstractNegotiationParty {
     @Override
     public void init(NegotiationInfo info) {
         super.init(info);
+        initModels();
+    }
+
+    /**
+     * Builds our own model and the Nash search. Only needs the domain, the user model and rand, so
+     * the benchmarks can set the agent up without a running negotiation.
+     */
+    private void initModels() {
+        session_start = System.nanoTime();
 
         utilitySpace = estimateUtilitySpace_a10();
         additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
+        codec = new BidCodec(utilitySpace.getDomain());
+        ownEvaluator = CompiledEvaluator.compile(additiveUtilitySpace, codec);
+        offer_values = new int[codec.getNumberOfIssues()];
+        //One annealing chain per core, they all stop before the end of the turn
+        nashChains = new NashChains(ownEvaluator, Runtime.getRuntime().availableProcessors(), rand.nextLong(),
+                ForkJoinPool.commonPool());
+        nashChains.setIterations(40000); // Tune this parameter , # of iterations, a move only costs a few additions
 
         panic = 0.99;
 
-        // Initialize the Agent's histories and the hashcodes to 0
-        hashcode_a = 0;
-        hashcode_b = 0;
         curr_bid = this.getMaxUtilityBid(); //user defined function below
 
         // Get the Max and Min Utility Offers
@@ -219,8 +323,6 @@ public class Agent26 extends AbstractNegotiationParty {
         // Cast the Utility Space into an Additive Utility Space to have access to its methods ***
         additiveUtilitySpace_i = (AdditiveUtilitySpace)utilitySpace;
 
-        max_num_of_values = 0;
-
         for(Issue lIssue : domain_issues) {
             IssueDiscrete lIssueDiscrete = (IssueDiscrete) lIssue;
             evaluator = (EvaluatorDiscrete) (((AdditiveUtilitySpace)utilitySpace).getEvaluator(lIssue.getNumber()));
@@ -235,25 +337,6 @@ public class Agent26 extends AbstractNegotiationParty {
                 max_weight_number = lIssue.getNumber();
                 max_weight = curr_weight;
             }
-            if(values.size() > max_num_of_values){
-                max_num_of_values = values.size();
-            }
-        }
-
-        //initial the array to store the frequency for each value
-        freq_a = new int [number_of_issues][max_num_of_values];
-        //freq_b = new int [number_of_issues][max_num_of_values];
-
-        //Initial opponents
-        opponentA = new OpponentModel(number_of_issues, max_num_of_values, freq_a);
-        //opponentB = new OpponentModel(number_of_issues, max_num_of_values, freq_b);
-
-        //Lets initialize the array
-        for(int i = 0 ; i < number_of_issues ; i ++){
-            for(int j = 0 ; j < max_num_of_values ; j++){
-                freq_a [i][j] = 0;
-                //freq_b [i][j] = 0;
-            }
         }
 
     }
@@ -264,6 +347,13 @@ public class Agent26 extends AbstractNegotiationParty {
         //System.out.println(domain_issues.get(0).getType());
         //System.out.println(additiveUtilitySpace_i.getWeight(1));
 
+        //Keep track of how long a turn takes, to bound the time of the Nash search
+        long turn_start = System.nanoTime();
+        if(last_turn_start != 0) {
+            average_turn_nanos = 0.8 * average_turn_nanos + 0.2 * (turn_start - last_turn_start);
+        }
+        last_turn_start = turn_start;
+
         // According to Stacked Alternating Offers Protocol list includes
         // Accept, Offer and EndNegotiation actions only.
         if(lastReceivedOffer == null) {
@@ -291,14 +381,15 @@ public class Agent26 extends AbstractNegotiationParty {
         }
 
         else { //否则不接受，继续对对手预测（建模）并且提供新的offer
-            opponentA.updateModel();
-            //opponentB.updateModel();
+            for(OpponentModel opponent : opponent_models) {
+                opponent.updateModel();
+            }
             myLastOffer = generateGoodBid();
             //70% of the time we generate a "good enough bid", this is to collect enough data to predict the nash offer ...
             if(getTimeLine().getTime() < 0.7){ //谈判一开始一直提供对自己有利的
                 myLastOffer = generateGoodBid();
             }
-            else if (model_valid(0) && model_valid (1)){ //issue最大最小值差别要大
+            else if (models_valid()){ //issue最大最小值差别要大
                 myLastOffer = generateNashBid(); //提供一个比较nash的offer
                 if(utilitySpace.getUtility(myLastOffer) < Umin){
                     myLastOffer = generateGoodBid(); //nash低于底线时产生对自己有利的
@@ -318,129 +409,73 @@ public class Agent26 extends AbstractNegotiationParty {
 
         super.receiveMessage(sender, act);
 
-        if (act instanceof Accept && lastReceivedOffer != null) {
-            if(hashcode_a == 0) {
-                // Agent A is the first agent to make an offer
-                hashcode_a = sender.hashCode();
-            }
-            else if (hashcode_b == 0) {
-                // Agent B is the second agent to make an offer
-                hashcode_b = sender.hashCode();
-            }
-            if(sender.hashCode() == hashcode_a){
-                update_freq(lastReceivedOffer , 0);
-            }
-            else if(sender.hashCode() == hashcode_b){
-                update_freq(lastReceivedOffer , 1);
-            }
+        if (act instanceof Accept && lastReceivedOffer != null && sender != null) {
+            update_freq(lastReceivedOffer, getOpponentModel(sender));
         }
 
 
         if (act instanceof Offer) {
-            if(hashcode_a == 0) {
-                // Agent A is the first agent to make an offer
-                hashcode_a = sender.hashCode();
-            }
-            else if (hashcode_b == 0) {
-                // Agent B is the second agent to make an offer
-                hashcode_b = sender.hashCode();
-            }
             Offer offer = (Offer) act;
             lastReceivedOffer = offer.getBid();
-            if(sender.hashCode() == hashcode_a){
-                update_freq(lastReceivedOffer , 0);
-            }
-            else if(sender.hashCode() == hashcode_b){
-                update_freq(lastReceivedOffer , 1);
+            if(sender != null) {
+                update_freq(lastReceivedOffer, getOpponentModel(sender));
             }
         }
     }
 
+    //Get the model of an opponent, creating it the first time the opponent acts
+    private OpponentModel getOpponentModel(AgentID sender) {
+        OpponentModel model = opponents.get(sender);
+        if(model == null) {
+            //the frequency of each value is stored in the model sized by the values of each issue
+            model = new OpponentModel(codec.getNumbersOfValues());
+            opponents.put(sender, model);
+            opponent_models.add(model);
+            opponentEvaluators = Arrays.copyOf(opponentEvaluators, opponentEvaluators.length + 1);
+            opponentEvaluators[opponentEvaluators.length - 1] = new CompiledEvaluator(codec.getNumbersOfValues());
+            nashChains.setOpponents(opponentEvaluators);
+        }
+        return model;
+    }
+
 
     // So if there is not a significant difference in each issue max and min value, then we return true...
-    private boolean model_valid(int agent){
+    private boolean models_valid(){
+        for(OpponentModel opponent : opponent_models) {
+            if(!model_valid(opponent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean model_valid(OpponentModel opponent){
         int max_value, min_value;
         double  difference;
-        if(agent == 0){
-            for(int i = 0 ; i < domain_issues.size() ; i ++){
-                max_value  = 0 ;
-                min_value = 20000000;
-                for(int j = 0 ; j < max_num_of_values ; j++){
-                    if(freq_a[i][j] > max_value){
-                        max_value = freq_a[i][j];
-                    }
-                    if(freq_a[i][j] < min_value){
-                        min_value = freq_a[i][j];
-                    }
+        for(int i = 0 ; i < domain_issues.size() ; i ++){
+            max_value  = 0 ;
+            min_value = 20000000;
+            for(int j = 0 ; j < opponent.getNumberOfValues(i) ; j++){
+                if(opponent.getFrequency(i, j) > max_value){
+                    max_value = opponent.getFrequency(i, j);
+                }
+                if(opponent.getFrequency(i, j) < min_value){
+                    min_value = opponent.getFrequency(i, j);
                 }
-                difference = ((max_value - min_value) * 100 )/ max_value;
-                //Less than 20% of difference, then something is really wrong on the model ...
-                if(difference < 20){
-                    return false;}
-
             }
-            return true;
+            difference = ((max_value - min_value) * 100 )/ max_value;
+            //Less than 20% of difference, then something is really wrong on the model ...
+            if(difference < 20){
+                return false;}
+
         }
-//        else{
-//            for(int i = 0 ; i < domain_issues.size() ; i ++){
-//                max_value  = 0 ;
-//                min_value = 20000000;
-//                for(int j = 0 ; j < max_num_of_values ; j++){
-//                    if(freq_b[i][j] > max_value){
-//                        max_value = freq_b[i][j];
-//                    }
-//                    if(freq_b[i][j] < min_value){
-//                        min_value = freq_b[i][j];
-//                    }
-//                }
-//                difference = ((max_value - min_value) * 100 )/ max_value;
-//                //Less than 20% of difference, then something is really wrong on the model ...
-//                if(difference < 20){
-//                    return false;}
-//
-//            }
-//        }
         return true;
     }
 
     //Update frequency array used to predict opponet model ...
-    public void update_freq (Bid curr_bid_freq , int agent_num){
-
-        java.util.List<Issue> bid_issues;
-        java.util.HashMap<java.lang.Integer,Value> 	bid_values;
-        java.util.List<ValueDiscrete> issue_values;
-        IssueDiscrete lIssueDiscrete ;
-        ValueDiscrete lValueDiscrete;
-        bid_issues = curr_bid_freq.getIssues();
-        bid_values = curr_bid_freq.getValues();
-
-        if(agent_num == 0){
-            for (Integer curr_key : bid_values.keySet()){
-                lIssueDiscrete = (IssueDiscrete) (bid_issues.get(curr_key -1)); //取得issues
-                lValueDiscrete = (ValueDiscrete) bid_values.get(curr_key); //取得value
-                //每给一次offer，value++，update frequency
-                freq_a [curr_key-1][lIssueDiscrete.getValueIndex(lValueDiscrete.getValue())] ++;
-            }
-        }
-//        else if(agent_num == 1){ //和上边相同
-//            for (Integer curr_key : bid_values.keySet()){
-//                lIssueDiscrete = (IssueDiscrete) (bid_issues.get(curr_key -1));
-//                lValueDiscrete = (ValueDiscrete) bid_values.get(curr_key);
-//                freq_b [curr_key-1][lIssueDiscrete.getValueIndex(lValueDiscrete.getValue())] ++;
-//            }
-//        }
-
-//        int value_index , issue_idx;
-//        issue_idx = 0;
-//        for(Issue lIssue : bid_issues){
-//            lIssueDiscrete = (IssueDiscrete)  lIssue; //current issue
-//            issue_values  = lIssueDiscrete.getValues();
-//            for (ValueDiscrete value : issue_values) {
-//                value_index = lIssueDiscrete.getValueIndex(value.getValue());
-//            }
-//
-//            issue_idx ++;
-//        }
+    private void update_freq (Bid curr_bid_freq , OpponentModel opponent){
+        //每给一次offer，value++，update frequency and the rankings
+        opponent.addBid(codec.encode(curr_bid_freq, offer_values));
     }
 
     //******************************************************************************************************************
@@ -451,7 +486,7 @@ public class Agent26 extends AbstractNegotiationParty {
         int max_value_idx , num_values , issue_idx;
         Random randomnr = new Random(); //创建一个新的随机数生成器
         Bid generated_bid;
-        HashMap<Integer, Value> curr_bid_value = new HashMap<Integer, Value>();
+        int[] curr_bid_value = new int[number_of_issues];
         int selected_value;
         //generated_bid = null;
         //int agent_max_val_idx , agent_max_val , curr_max_agent_value;
@@ -459,9 +494,9 @@ public class Agent26 extends AbstractNegotiationParty {
 
         //curr_time = getTimeLine().getTime(); //取得现在的时间
 
+        issue_idx = 0;
         for(Issue lIssue : domain_issues) {
             num_values = 0 ;
-            issue_idx = 0;
             max_value = 0;
             max_value_idx = 0;
             curr_value = 0;
@@ -501,11 +536,11 @@ public class Agent26 extends AbstractNegotiationParty {
                 selected_value = max_value_idx;
             }
 
-            curr_bid_value.put(lIssue.getNumber(), lIssueDiscrete.getValue(selected_value)); //更新current bid value
+            curr_bid_value[issue_idx] = selected_value; //更新current bid value
             issue_idx ++;
         }
 
-        generated_bid = new Bid(utilitySpace.getDomain(), curr_bid_value); //根据current bid value 产生新的bid
+        generated_bid = codec.decode(curr_bid_value); //根据current bid value 产生新的bid
         return generated_bid;
     }
 
@@ -548,136 +583,36 @@ public class Agent26 extends AbstractNegotiationParty {
     //******************************************************************************************************************
     private Bid generateNashBid(){
 
-        double To ,  kmax , curr_energy , next_energy , our_utility, predicted_b , predicted_a , a , b , alpha , T ;
-        Bid altered_bid;
-        int random_issue_1 , random_issue_2;
-        HashMap<Integer, Value> curr_bid_value = new HashMap<Integer, Value>(); //auxiliary list for building the bid..
-        java.util.HashMap<java.lang.Integer,Value> 	bid_values;
-        //java.util.List<ValueDiscrete> issue_values;
-
-        a = 0.3;
-        b = 0.3;
-
-        alpha = 0.1;
-
-        To = 26;
-
-        kmax = 4000; // Tune this parameter , # of iterations....
+        int [] curr_values; //the bid as value indices, annealed in place
 
         curr_bid = getMaxUtilityBid(); // we will start with max utility bid ....
+        curr_values = codec.encode(curr_bid);
 
-        Random randomnr = new Random();
-
-        //****************************** 在自己最大utility下 ********************************
-        for(int k = 0 ; k < kmax ; k++){
-            our_utility = this.utilitySpace.getUtility(curr_bid); //得到自己的utility
-            //Used to model uncertainty of the model ...
-            if(Math.random() > 0.5){
-                predicted_a = opponentA.predictUtility(curr_bid) + 0.1 * opponentA.predictUtility(curr_bid) ;}
-            else{
-                predicted_a = opponentA.predictUtility(curr_bid) - 0.1 * opponentA.predictUtility(curr_bid) ;
-            }
-
-//            if(Math.random() > 0.5){
-//                predicted_b = opponentB.predictUtility(curr_bid) + 0.1 * opponentB.predictUtility(curr_bid) ;}
-//            else{
-//                predicted_b = opponentB.predictUtility(curr_bid) - 0.1 * opponentB.predictUtility(curr_bid) ;
-//            }
-
-            T =  To * Math.pow(alpha , k); //alpha的k次方
-
-            bid_values = curr_bid.getValues();
-            //Randomly select an issue and alter it ...
-            random_issue_1 = randomnr.nextInt(number_of_issues+1); //随机产生offer
-            //
-            curr_energy = our_utility * predicted_a +
-                    a * (1.0/Math.max(0.01, Math.abs(our_utility - predicted_a)));
-
-            //****************************** 产生自己新的offer ********************************
-            for(Issue lIssue : domain_issues){
-                IssueDiscrete lIssueDiscrete = (IssueDiscrete) lIssue;
-                if( random_issue_1 != lIssue.getNumber() ){
-                    curr_bid_value.put(lIssue.getNumber() , bid_values.get(lIssue.getNumber()));}
-                //alter one single issue putting a random value on it ...
-                else {
-                    curr_bid_value.put(lIssue.getNumber() , lIssueDiscrete.getValue(randomnr.nextInt( lIssueDiscrete.getNumberOfValues())));
-                }
-            }
-            altered_bid = new Bid(utilitySpace.getDomain(), curr_bid_value); //产生新的offer
-            our_utility = this.utilitySpace.getUtility(altered_bid); //计算新offer的utility
-
-            //预测对手的utility
-            if(Math.random() > 0.5){ //
-                predicted_a = opponentA.predictUtility(altered_bid) + 0.1 * opponentA.predictUtility(altered_bid) ;}
-            else{
-                predicted_a = opponentA.predictUtility(altered_bid) - 0.1 * opponentA.predictUtility(altered_bid) ;
-            }
-
-//            if(Math.random() > 0.5){
-//                predicted_b = opponentB.predictUtility(altered_bid) + 0.1 * opponentB.predictUtility(altered_bid) ;}
-//            else{
-//                predicted_b = opponentB.predictUtility(altered_bid) - 0.1 * opponentB.predictUtility(altered_bid) ;
-//            }
-
-            next_energy = our_utility * predicted_a +
-                    a * (1.0/Math.max(0.01, Math.abs(our_utility - predicted_a)));
+        for(int i = 0; i < opponent_models.size(); i++) {
+            opponent_models.get(i).compile(opponentEvaluators[i]); //the annealer reads the latest models
+        }
 
-            //如果新产生的offer的utility大于目标utility
-            if(this.utilitySpace.getUtility(altered_bid) > getTargetUtility( 0.1 , 1.5) ){
-                if(next_energy > curr_energy ){
-                    curr_bid = new Bid(altered_bid);
-                }
-                else if ( Math.exp((next_energy - curr_energy)/T) > Math.random()){
-                    curr_bid = new Bid(altered_bid);
-                }
-            }
+        //Only move to bids whose utility is above the target utility, keep the best chain
+        long now = System.nanoTime();
+        double budget = average_turn_nanos;
+        double time = getTimeLine().getTime();
+        if(time > 0) {
+            //The wall-clock time left, estimated from the time taken so far, also for rounds
+            budget = Math.min(budget, (now - session_start) * (1 - time) / time);
         }
+        long deadline = now + (long) (nash_time_fraction * Math.max(0, budget));
+        nashChains.search(curr_values, getTargetUtility(0.1, 1.5), deadline);
 
+        curr_bid = codec.decode(curr_values);
         return curr_bid;
     }
 
 
     public AbstractUtilitySpace estimateUtilitySpace_a10() {
-        //定义一个double型的二维数组，用来存放K值
-        //Mun[m][n],m是issue的个数，n是value的个数
-        double Num[][];
-        //获取进来的domain
-        Domain domain = getDomain();
-        //根据domain生成factory
-        AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
-        //usermodel生成一个BidRanking，里面都是一个个bid,放到r里
+        //Each value scores the sum of the positions of the ranked bids containing it, in one pass over the ranking
         BidRanking r = userModel.getBidRanking();
-        //计算一共有多少个bid,赋值给totalnum
-        int totalnum = r.getBidOrder().size();
-        System.out.println("totalnum:"+totalnum);
-        double points = 0;
-        for (Bid b : r.getBidOrder()) {
-
-            List<Issue> issues = b.getIssues();
-            int m=issues.size();
-//            List<Issue> issuesList = bid.getIssues();
-            //           System.out.println("this is Bid "+b.getValue(1)+" "+b.getValue(2)+" "+b.getValue(3));
-            for (Issue issue : issues) {
-                //int n=issue
-//                System.out.println(issue.getName() + ": " + b.getValue(issue.getNumber()));
-//                System.out.println(issue.getNumber()+"*****************************");
-            }
-
-            /////////////////////////////////////////
-            for (Issue i : issues) {
-                int no = i.getNumber();
-                ValueDiscrete v = (ValueDiscrete) b.getValue(no);
-                double oldUtil = factory.getUtility(i, v);
-//                System.out.println("old utility of "+i.getName()+i.getNumber()+": "+oldUtil);
-                factory.setUtility(i, v, oldUtil + points);
-            }
-            points += 1;
-        }
-        factory.normalizeWeightsByMaxValues();
-
-        return factory.getUtilitySpace();
-//        return new AdditiveUtilitySpaceFactory(getDomain()).getUtilitySpace();
-
+        System.out.println("totalnum:" + r.getBidOrder().size());
+        return RankEstimator.estimate(getDomain(), r);
     }
 
 
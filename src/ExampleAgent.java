@@ -2,7 +2,6 @@ import java.util.List;
 
 import genius.core.AgentID;
 import genius.core.Bid;
-import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
@@ -11,11 +10,14 @@ import genius.core.issue.IssueDiscrete;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
 import genius.core.uncertainty.BidRanking;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.EvaluatorDiscrete;
+import group10.BidCodec;
+import group10.CompiledEvaluator;
+import group10.RankEstimator;
+import group10.ThresholdBidSampler;
 
 /**
  * ExampleAgent returns the bid that maximizes its own utility for half of the negotiation session.
@@ -28,6 +30,12 @@ public class ExampleAgent extends AbstractNegotiationParty {
     private Bid lastReceivedOffer; // offer on the table
     private Bid myLastOffer;
 
+    // Random bids are drawn as value indices above the threshold, only the chosen one becomes a Bid
+    private BidCodec codec;
+    private ThresholdBidSampler sampler;
+    // Random bids tried on non additive utility spaces before falling back to the best bid
+    private static final int MAX_RANDOM_ATTEMPTS = 10000;
+
     @Override
     public void init(NegotiationInfo info) {
         super.init(info);
@@ -141,9 +149,27 @@ public class ExampleAgent extends AbstractNegotiationParty {
         return null;
     }
     public Bid generateRandomBidWithUtility(double utilityThreshold) {
+        if (this.utilitySpace instanceof AdditiveUtilitySpace) {
+            if (codec == null) {
+                codec = new BidCodec(this.utilitySpace.getDomain());
+                sampler = new ThresholdBidSampler(
+                        CompiledEvaluator.compile((AdditiveUtilitySpace) this.utilitySpace, codec));
+            }
+            int[] values = new int[codec.getNumberOfIssues()];
+            if (!sampler.sample(utilityThreshold, rand, values)) {
+                // No bid reaches the threshold
+                return getMaxUtilityBid();
+            }
+            return codec.decode(values);
+        }
+
         Bid randomBid;
         double utility;
+        int attempts = 0;
         do {
+            if (attempts++ == MAX_RANDOM_ATTEMPTS) {
+                return getMaxUtilityBid();
+            }
             randomBid = generateRandomBid();
             try {
                 utility = utilitySpace.getUtility(randomBid);
@@ -156,46 +182,10 @@ public class ExampleAgent extends AbstractNegotiationParty {
         return randomBid;
     }
     public AbstractUtilitySpace estimateUtilitySpace_a10() {
-        //定义一个double型的二维数组，用来存放K值
-        //Mun[m][n],m是issue的个数，n是value的个数
-        double Num[][];
-        //获取进来的domain
-        Domain domain = getDomain();
-        //根据domain生成factory
-        AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
-        //usermodel生成一个BidRanking，里面都是一个个bid,放到r里
+        //Each value scores the sum of the positions of the ranked bids containing it, in one pass over the ranking
         BidRanking r = userModel.getBidRanking();
-        //计算一共有多少个bid,赋值给totalnum
-        int totalnum = r.getBidOrder().size();
-        System.out.println("totalnum:"+totalnum);
-        double points = 0;
-        for (Bid b : r.getBidOrder()) {
-
-            List<Issue> issues = b.getIssues();
-            int m=issues.size();
-//            List<Issue> issuesList = bid.getIssues();
-            //           System.out.println("this is Bid "+b.getValue(1)+" "+b.getValue(2)+" "+b.getValue(3));
-            for (Issue issue : issues) {
-                //int n=issue
-                System.out.println(issue.getName() + ": " + b.getValue(issue.getNumber()));
-                System.out.println(issue.getNumber()+"*****************************");
-            }
-
-            /////////////////////////////////////////
-            for (Issue i : issues) {
-                int no = i.getNumber();
-                ValueDiscrete v = (ValueDiscrete) b.getValue(no);
-                double oldUtil = factory.getUtility(i, v);
-//                System.out.println("old utility of "+i.getName()+i.getNumber()+": "+oldUtil);
-                factory.setUtility(i, v, oldUtil + points);
-            }
-            points += 1;
-        }
-        factory.normalizeWeightsByMaxValues();
-
-        return factory.getUtilitySpace();
-//        return new AdditiveUtilitySpaceFactory(getDomain()).getUtilitySpace();
-
+        System.out.println("totalnum:" + r.getBidOrder().size());
+        return RankEstimator.estimate(getDomain(), r);
     }
 
 
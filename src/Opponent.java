@@ -1,52 +1,85 @@
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
 import genius.core.Bid;
-import genius.core.BidHistory;
-import genius.core.bidding.BidDetails;
-import genius.core.issue.Value;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
 import genius.core.issue.ValueDiscrete;
-import genius.core.utility.EvaluatorDiscrete;
+import group10.ChangeWindow;
+import group10.CompactBidHistory;
 
 /**
  * Represents an opponent in the negotiation
  */
 public class Opponent {
-    // Bidding history of the opponent
-    BidHistory bidHistory;
+    // Largest number of last rounds that hardHeaded answers in constant time, longer windows are
+    // counted on the bidding history
+    public static final int MAX_WINDOW_ROUNDS = 100;
+    // Largest number of bids stored in the history, older bids are then thinned out
+    public static final int MAX_HISTORY_ROWS = 1 << 16;
+
+    // Bidding history of the opponent, as value indices
+    CompactBidHistory bidHistory;
     // Number of issues in the domain
     Integer nrIssues;
     // IDs of the issues
     int[] issueIds;
-    // Values of the issues
-    EvaluatorDiscrete[] issues;
+    // The issues, used to map a value to its index
+    IssueDiscrete[] issues;
+    // Number of times each value of each issue was offered
+    int[][] valueCounts;
+    // Maximum number of times a value was offered, per issue
+    int[] maxValueCounts;
+    // Number of times each issue changed, over the whole bidding history and the last rounds
+    ChangeWindow changes;
+    // Normalized weight of each issue
+    double[] weights;
 
     /**
      * Constructor
      * @param exampleBid An example bid used to populate the issue space
      */
     public Opponent(Bid exampleBid) {
-        this.bidHistory = new BidHistory();
-        this.nrIssues = exampleBid.getIssues().size();
+        List<Issue> domainIssues = exampleBid.getIssues();
+        this.nrIssues = domainIssues.size();
         this.issueIds = new int[this.nrIssues];
+        this.issues = new IssueDiscrete[this.nrIssues];
+        this.valueCounts = new int[this.nrIssues][];
 
-        // Assign the issue IDs
-        for (int i = 0; i < exampleBid.getIssues().size(); i++) {
-            this.issueIds[i] = exampleBid.getIssues().get(i).getNumber();
+        // Assign the issue IDs and the value counters of each issue
+        for (int i = 0; i < this.nrIssues; i++) {
+            this.issueIds[i] = domainIssues.get(i).getNumber();
+            this.issues[i] = (IssueDiscrete) domainIssues.get(i);
+            this.valueCounts[i] = new int[this.issues[i].getNumberOfValues()];
         }
 
-        // Create the evaluators for each issue
-        this.issues = new EvaluatorDiscrete[this.nrIssues];
+        int[] numValues = new int[this.nrIssues];
         for (int i = 0; i < this.nrIssues; i++) {
-            this.issues[i] = new EvaluatorDiscrete();
+            numValues[i] = this.valueCounts[i].length;
         }
+        this.bidHistory = new CompactBidHistory(numValues, MAX_HISTORY_ROWS);
+        this.maxValueCounts = new int[this.nrIssues];
+        this.changes = new ChangeWindow(this.nrIssues, MAX_WINDOW_ROUNDS);
+        this.weights = new double[this.nrIssues];
     }
 
     /**
-     * Add a bid to the opponent's bidding history
+     * Add a bid to the opponent's bidding history. Only the counters touched by
+     * this bid are updated, so the cost does not grow with the history.
      * @param bid The bid to add to the history
      */
     public void addBid(Bid bid) {
-        this.bidHistory.add(new BidDetails(bid, 0));
+        int[] values = new int[this.nrIssues];
+        for (int i = 0; i < this.nrIssues; i++) {
+            values[i] = this.issues[i].getValueIndex((ValueDiscrete) bid.getValue(this.issueIds[i]));
+
+            // Count the value and keep track of the most offered one
+            int count = ++this.valueCounts[i][values[i]];
+            if (count > this.maxValueCounts[i]) {
+                this.maxValueCounts[i] = count;
+            }
+        }
+        this.bidHistory.add(values);
+        // Compare with the previous bid to count the changes of the issues
+        this.changes.add(values);
         this.setWeights();
     }
 
@@ -59,138 +92,64 @@ public class Opponent {
     public double getUtility(Bid bid) {
         double utility = 0.0;
 
-        HashMap<Integer, Value> bidValues = bid.getValues();
         // Iterate over the issues
         for (int i = 0; i < this.nrIssues; i++) {
-            // Get weight of current issue
-            double weight = this.issues[i].getWeight();
+            ValueDiscrete value = (ValueDiscrete) bid.getValue(this.issueIds[i]);
+            int index = this.issues[i].getValueIndex(value);
 
-            ValueDiscrete value = (ValueDiscrete) bidValues.get(this.issueIds[i]);
-
-            if (((EvaluatorDiscrete) this.issues[i]).getValues().contains(value)) {
-                utility += this.issues[i].getDoubleValue(value).doubleValue() * weight;
+            // Only values that were offered have an evaluation, which is the number of times
+            // the value was used divided by the maximum number of times a value was used
+            if (index >= 0 && this.valueCounts[i][index] > 0) {
+                utility += this.valueCounts[i][index] / (double) this.maxValueCounts[i] * this.weights[i];
             }
         }
         return utility;
     }
 
     /**
-     * Set the weights of the issues and the values per issue
+     * Set the weights of the issues. The weights of the values per issue are
+     * read directly from the frequency counters.
      */
     public void setWeights() {
         this.setWeightsIssues();
-        this.setWeightsIssueValues();
-    }
-
-    /**
-     * Set the weights for the values of each issues using frequency analysis
-     */
-    private void setWeightsIssueValues() {
-        // Iterate over the issues
-        for (int i = 0; i < this.nrIssues; i++) {
-            // The keys of the map are the possible values of the issues and the values of the map
-            // are the times each value of the issue was used
-            HashMap<ValueDiscrete, Double> values = new HashMap<ValueDiscrete, Double>();
-            // Iterate over the bidding history
-            for (int j = 0; j < this.bidHistory.size(); j++) {
-                ValueDiscrete value = (ValueDiscrete) (this.bidHistory.getHistory().get(j).getBid()
-                        .getValue(this.issueIds[i]));
-                if (values.containsKey(value)) {
-                    values.put(value, values.get(value) + 1);
-                } else {
-                    values.put(value, 1.0);
-                }
-            }
-
-            // Get the maximum number of times a value was used
-            double max = 0.0;
-            for (ValueDiscrete value : values.keySet()) {
-                if (values.get(value) > max)
-                    max = values.get(value);
-            }
-
-            // Set the evaluation values of each issue as the number of times each value was used
-            // divided by the maximum number of times a value was used (so that the max is 1)
-            for (ValueDiscrete value : values.keySet()) {
-                try {
-                    this.issues[i].setEvaluationDouble(value, values.get(value) / max);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
     }
 
     /**
      * Set the weights for each issue using frequency analysis
      */
     private void setWeightsIssues() {
-        int[] changesIssues = getChangesIssues();
-        double[] weights = new double[this.nrIssues];
         double totalWeight = 0.0;
 
         // Iterate over all the issues
         for (int i = 0; i < this.nrIssues; i++) {
-            weights[i] = 1.0 / this.nrIssues + (this.bidHistory.size() - changesIssues[i] - 1) / 10.0;
+            this.weights[i] = 1.0 / this.nrIssues + (this.bidHistory.size() - this.changes.getChanges(i) - 1) / 10.0;
 
             // Keep the total weight to normalize
-            totalWeight += weights[i];
+            totalWeight += this.weights[i];
         }
 
         // Normalize the weights of the issues
         for (int i = 0; i < this.nrIssues; i++) {
-            this.issues[i].setWeight(weights[i] / totalWeight);
-        }
-    }
-
-    /**
-     * Return an array which represents the frequency of change of each issue
-     * @return an array in which each elements represents the number of changes of that issue
-     */
-    private int[] getChangesIssues()
-    {
-        return getChangesIssues(this.bidHistory.size());
-    }
-
-    /**
-     * Return an array which represents the frequency of change of each issue only considering the last $rounds rounds
-     * @return an array in which each elements represents the number of changes of that issue
-     */
-    private int[] getChangesIssues(int rounds) {
-        // In this array we store the number of times each issue has changed
-        int[] changes = new int[this.nrIssues];
-
-        // Iterate over all the issues
-        for (int i = 0; i < this.nrIssues; i++) {
-            Value oldValue = null;
-            Value currentValue = null;
-            int count = 0;
-
-            // Iterate over the last $rounds bids from the bidding history
-            for (int j=this.bidHistory.size()-1; j>this.bidHistory.size()-rounds-1; j--){
-                currentValue = this.bidHistory.getHistory().get(j).getBid().getValue(this.issueIds[i]);
-
-                // If it's not the first value and the current value is different from the previous one,
-                // it means it has changed. We then increment the changes count.
-                if (oldValue != null && !oldValue.equals(currentValue))  count++;
-
-                oldValue = currentValue;
-            }
-            changes[i] = count;
+            this.weights[i] /= totalWeight;
         }
-        return changes;
     }
 
     /**
      * Return how hardHeaded the agent is. 1 = bids do not change in the last $rounds, 0 = bid change every time in the last $rounds
-     * @param only consider the last $rounds rounds
-     * @return range 0-1
+     * @param rounds only consider the last $rounds rounds
+     * @return range 0-1, or null if the history does not hold the last $rounds bids, e.g. because
+     * it is shorter or it was thinned out beyond MAX_HISTORY_ROWS bids
      */
     public Double hardHeaded(int rounds)
     {
         if (this.bidHistory.size() < rounds) return null;
 
-        int[] changes = this.getChangesIssues(rounds);
+        int[] changes = new int[this.nrIssues];
+        if (rounds <= MAX_WINDOW_ROUNDS) {
+            this.changes.getChanges(rounds, changes);
+        } else if (this.bidHistory.getChanges(rounds, changes) == null) {
+            return null;
+        }
         int sum = 0;
         for (int change: changes){
             sum += change;
@@ -2,25 +2,20 @@ package group10;
 
 import genius.core.AgentID;
 import genius.core.Bid;
-import genius.core.BidHistory;
-import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
-import genius.core.issue.Issue;
-import genius.core.issue.Value;
+import genius.core.issue.IssueDiscrete;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.bidding.BidDetails;
-import genius.core.boaframework.SortedOutcomeSpace;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
 import genius.core.uncertainty.BidRanking;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
-import genius.core.utility.EvaluatorDiscrete;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Agent 10 offers the bid with maximum utility for half of the negotiation.
@@ -34,48 +29,57 @@ public class Agent10 extends AbstractNegotiationParty {
     // *************************** Private Class used to predict the opponent model ********************************
     // *************************************************************************************************************
     private class Opponent {
-        BidHistory bidHistory;
         Integer num_issues;
         int[] issues_id;
-        EvaluatorDiscrete[] issuesEvaluator;
+        IssueDiscrete[] issues;
+        // Opponent weights and value scores in flat arrays, used to score the candidate bids
+        CompiledEvaluator evaluator;
+        // Number of bids and number of times each issue changed, over the whole bidding history
+        // and the last rounds. Nothing else is read from the history, so the bids are not kept.
+        ChangeWindow changes;
+        int[] values;
+        // Number of times each value was offered, and the largest of them per issue
+        int[][] times;
+        int[] max_times;
 
 
         public Opponent(Bid bid) {
-            this.bidHistory = new BidHistory();
             this.num_issues = bid.getIssues().size();
             this.issues_id = new int[this.num_issues];
+            this.issues = new IssueDiscrete[this.num_issues];
+            int[] num_values = new int[this.num_issues];
 
             for (int i = 0; i < bid.getIssues().size(); i++) {
                 this.issues_id[i] = bid.getIssues().get(i).getNumber();
+                this.issues[i] = (IssueDiscrete) bid.getIssues().get(i);
+                num_values[i] = this.issues[i].getNumberOfValues();
             }
 
-            this.issuesEvaluator = new EvaluatorDiscrete[this.num_issues];
+            this.evaluator = new CompiledEvaluator(num_values);
+            this.times = new int[this.num_issues][];
             for (int i = 0; i < this.num_issues; i++) {
-                this.issuesEvaluator[i] = new EvaluatorDiscrete();
+                this.times[i] = new int[num_values[i]];
             }
+            this.max_times = new int[this.num_issues];
+            this.changes = new ChangeWindow(this.num_issues, HARD_CHANGES_ROUNDS);
+            this.values = new int[this.num_issues];
         }
 
         public void addBid(Bid bid) {
-            this.bidHistory.add(new BidDetails(bid, 0));
+            for (int i = 0; i < this.num_issues; i++) {
+                this.values[i] = this.issues[i].getValueIndex((ValueDiscrete) bid.getValue(this.issues_id[i]));
+            }
+            this.changes.add(this.values);
             this.setWeights();
         }
 
-        public double getOpponentUtility(Bid bid) {
-            double U = 0.0;
-
-            HashMap<Integer, Value> bid_values = bid.getValues();
-            // Iterate over the issues
-            for (int i = 0; i < this.num_issues; i++) {
-
-                double weight = this.issuesEvaluator[i].getWeight();
-
-                ValueDiscrete value = (ValueDiscrete) bid_values.get(this.issues_id[i]);
-
-                if ((this.issuesEvaluator[i]).getValues().contains(value)) {
-                    U += this.issuesEvaluator[i].getDoubleValue(value).doubleValue() * weight;
-                }
-            }
-            return U;
+        /**
+         * @param values the bid encoded as the value index of each issue, see {@link BidCodec}
+         * @return the estimated utility of the bid for this opponent
+         */
+        public double getOpponentUtility(int[] values) {
+            // Values which were never offered have a score of 0
+            return this.evaluator.getUtility(values);
         }
 
         public void setWeights() {
@@ -83,34 +87,22 @@ public class Agent10 extends AbstractNegotiationParty {
             this.setValuesWeight();
         }
 
+        /**
+         * Counts the values of the last bid. Only its values are rescored, unless one of them
+         * became the most offered value of its issue.
+         */
         private void setValuesWeight() {
             // Iterate over the issues
             for (int i = 0; i < this.num_issues; i++) {
+                int count = ++this.times[i][this.values[i]];
 
-                HashMap<ValueDiscrete, Double> values = new HashMap<ValueDiscrete, Double>();
-
-                for (int j = 0; j < this.bidHistory.size(); j++) {
-                    ValueDiscrete value = (ValueDiscrete) (this.bidHistory.getHistory().get(j).getBid()
-                            .getValue(this.issues_id[i]));
-                    if (values.containsKey(value)) {
-                        values.put(value, values.get(value) + 1);
-                    } else {
-                        values.put(value, 1.0);
-                    }
-                }
-
-                double max_times = 0.0;
-                for (ValueDiscrete value : values.keySet()) {
-                    if (values.get(value) > max_times)
-                        max_times = values.get(value);
-                }
-
-                for (ValueDiscrete value : values.keySet()) {
-                    try {
-                        this.issuesEvaluator[i].setEvaluationDouble(value, values.get(value) / max_times);
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                if (count > this.max_times[i]) {
+                    this.max_times[i] = count;
+                    for (int v = 0; v < this.times[i].length; v++) {
+                        this.evaluator.setScore(i, v, this.times[i][v] / (double) count);
                     }
+                } else {
+                    this.evaluator.setScore(i, this.values[i], count / (double) this.max_times[i]);
                 }
             }
         }
@@ -119,53 +111,20 @@ public class Agent10 extends AbstractNegotiationParty {
          * Set the weights for each issue using frequency analysis
          */
         private void setIssuesWeight() {
-            int[] changeTimes = getChangesTimes(this.bidHistory.size());
             double[] weights = new double[this.num_issues];
             double totalWeight = 0.0;
 
 
             for (int i = 0; i < this.num_issues; i++) {
-                weights[i] = 1.0 / this.num_issues + (this.bidHistory.size() - changeTimes[i] - 1) / 10.0;
+                weights[i] = 1.0 / this.num_issues + (this.changes.size() - this.changes.getChanges(i) - 1) / 10.0;
                 totalWeight += weights[i];
             }
 
             for (int i = 0; i < this.num_issues; i++) {
-                this.issuesEvaluator[i].setWeight(weights[i] / totalWeight);
+                this.evaluator.setWeight(i, weights[i] / totalWeight);
             }
         }
 
-        /**
-         * Return an array which represents the frequency of change of each issue only considering the last $rounds rounds
-         *
-         * @return an array in which each elements represents the number of changes of that issue
-         */
-        private int[] getChangesTimes(int rounds) {
-            // In this array we store the number of times each issue has changed
-            int[] num_changeTimes = new int[this.num_issues];
-
-            // Iterate over all the issues
-            for (int i = 0; i < this.num_issues; i++) {
-                Value oldValue = null;
-                Value currentValue;
-                int number = 0;
-
-                // Iterate over the last rounds bids from the bidding history
-                for (int j = this.bidHistory.size() - 1; j > this.bidHistory.size() - rounds - 1; j--) {
-                    currentValue = this.bidHistory.getHistory().get(j).getBid().getValue(this.issues_id[i]);
-
-                    // If it's not the first value and the current value is different from the previous one,
-                    // it means it has changed. We then increment the changes count.
-                    if (oldValue != null && !oldValue.equals(currentValue)) {
-                        number++;
-                    }
-
-                    oldValue = currentValue;
-                }
-                num_changeTimes[i] = number;
-            }
-            return num_changeTimes;
-        }
-
         /**
          * Return how hard the agent is. 1 = bids do not change in the last $rounds,
          * 0 = bid change every time in the last $rounds, only consider the last $rounds rounds
@@ -175,11 +134,11 @@ public class Agent10 extends AbstractNegotiationParty {
          */
         public Double hardChanges(int rounds) {
 
-            if (this.bidHistory.size() < rounds) {
+            if (this.changes.size() < rounds) {
                 return null;
             }
 
-            int[] changeTimes = this.getChangesTimes(rounds);
+            int[] changeTimes = this.changes.getChanges(rounds, new int[this.num_issues]);
             int sum = 0;
             for (int times : changeTimes) {
                 sum += times;
@@ -198,6 +157,8 @@ public class Agent10 extends AbstractNegotiationParty {
 
     // The range of time to keep offering the maximum utility bid
     private double timeRange_MaxUtility = 0.20D;
+    // The number of last rounds in which the opponents are checked for hard changes
+    private static final int HARD_CHANGES_ROUNDS = 40;
     // Minimum utility that will be offered or accepted
     private double reservation_Value = 0.4D;
     private double final_Value = 0.5D;
@@ -205,11 +166,11 @@ public class Agent10 extends AbstractNegotiationParty {
     private int max_Num_GoodBits = 100;
 
 
-    // Used to find the closed bid with a given utility
-    private SortedOutcomeSpace sortedOutSpace;
+    // Used to find the closed bid with a given utility, shared by the sessions on the same profile
+    private OutcomeIndex outcomeIndex;
     private Random randomGenerator;
-    // A list to store the good bids that provided by opponent
-    private List<BidDetails> goodBidsList = new ArrayList<BidDetails>();
+    // The good bids that were generated, ranked by nash value
+    private TopBids goodBids = new TopBids(max_Num_GoodBits);
 
     int num_Round; //The number of rounds for negotiation
     double predict_totalRound = 0;
@@ -220,16 +181,46 @@ public class Agent10 extends AbstractNegotiationParty {
     AbstractUtilitySpace utilitySpace;
     AdditiveUtilitySpace additiveUtilitySpace;
 
+    // Encodes the bids as value indices for the opponent models
+    private BidCodec codec;
+    private int[] encodedBid;
+
+    // Number of candidate bids scored for a generated bid, scaled with the time of a round
+    private static final int MIN_CANDIDATES = 100;
+    private static final int MAX_CANDIDATES = 1 << 14;
+    // Part of the time of a round spent scoring the candidates
+    private static final double SCORING_SHARE = 0.05;
+    // The candidate bids, with our compiled utility when it is additive
+    private NashBatch candidates;
+    private CompiledEvaluator ownEvaluator;
+    private long roundStart;
+    private long roundNanos;
+    private double nanosPerCandidate;
+
     @Override
     public void init(NegotiationInfo info) {
         super.init(info);
+        this.initModels();
+    }
 
+    /**
+     * Builds our own and the opponent models. Only needs the domain and the user model, so the
+     * benchmarks can set the agent up without a running negotiation.
+     */
+    void initModels() {
         //Initial self modeling
         utilitySpace = estimateUtilitySpace_a10();
 
         additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
+        this.codec = new BidCodec(this.utilitySpace.getDomain());
+        this.encodedBid = new int[this.codec.getNumberOfIssues()];
+        this.candidates = new NashBatch(this.codec.getNumberOfIssues());
+        if (getUtilitySpace() instanceof AdditiveUtilitySpace) {
+            this.ownEvaluator = CompiledEvaluator.compile((AdditiveUtilitySpace) getUtilitySpace(), this.codec);
+        }
         this.opponentsMap = new HashMap<AgentID, Opponent>(); //Initial opponent modeling
-        this.sortedOutSpace = new SortedOutcomeSpace(this.utilitySpace);
+        // The estimated space has no index file, large domains get a sampled index
+        this.outcomeIndex = OutcomeIndex.get(this.utilitySpace);
         this.randomGenerator = new Random();
         rankedBids = userModel.getBidRanking().getBidOrder(); // Initial bid ranking from small utility to big utility
     }
@@ -244,6 +235,11 @@ public class Agent10 extends AbstractNegotiationParty {
     @Override
     public Action chooseAction(List<Class<? extends Action>> list) {
         this.num_Round++;
+        long now = System.nanoTime();
+        if (this.roundStart != 0) {
+            this.roundNanos = now - this.roundStart;
+        }
+        this.roundStart = now;
         if (178.0 < this.getTimeLine().getCurrentTime() && this.getTimeLine().getCurrentTime()< 178.05){
             this.predict_totalRound=(this.num_Round/178)*180;
             System.out.println("Predict total round: "+predict_totalRound);
@@ -300,7 +296,7 @@ public class Agent10 extends AbstractNegotiationParty {
         Double current_changtimes;
         for (AgentID id : this.opponentsMap.keySet()) {
             // Get how hard that agent changes considering last 40 rounds
-            current_changtimes = this.opponentsMap.get(id).hardChanges(40);
+            current_changtimes = this.opponentsMap.get(id).hardChanges(HARD_CHANGES_ROUNDS);
             if (current_changtimes != null && current_changtimes > max_changtimes) {
                 max_changtimes = current_changtimes;
             }
@@ -365,7 +361,8 @@ public class Agent10 extends AbstractNegotiationParty {
                 opponentsMap.get(opponent).addBid(this.lastReceivedBid); // Storing the received bid
             } else { // If it's the first round of negotiation, create a new opponent map
                 try {
-                    Opponent new_Opponent = new Opponent(generateRandomBid());
+                    // The opponent only reads the issues of the bid
+                    Opponent new_Opponent = new Opponent(this.lastReceivedBid);
                     new_Opponent.addBid(this.lastReceivedBid);
                     opponentsMap.put(opponent, new_Opponent);
                 } catch (Exception e) {
@@ -376,22 +373,20 @@ public class Agent10 extends AbstractNegotiationParty {
     }
 
     /**
-     * Generates a random bid that has an higher utility than excepted utility
+     * Generates a random bid that has an higher utility than excepted utility. The bid is drawn
+     * uniformly among the outcomes above the utility, which takes a single binary search. On large
+     * domains the outcomes are those of the sampled index.
      *
-     * @return the random bid with utility higher than the reservation value
+     * @return the random bid with utility higher than the given utility, or the maximum utility
+     * bid if no outcome has a higher utility
      */
     private Bid acceptableRandomBid(double min_acceptable_utility) {
-        Bid acceptable_bid;
-        do {
-            double randomNumber = this.randomGenerator.nextDouble();
-
-            // calculate a utility based on the minimum utility and a 0-1 random number
-            double utility = min_acceptable_utility + randomNumber * (1.0 - min_acceptable_utility);
-            // Generate a efficient bid
-            acceptable_bid = sortedOutSpace.getBidNearUtility(utility).getBid();
-
-        } while (getUtility(acceptable_bid) <= min_acceptable_utility);
-        return acceptable_bid;
+        int index = this.outcomeIndex.sampleAbove(min_acceptable_utility, this.randomGenerator);
+        if (index < 0) {
+            // Nothing lies above the minimum utility, fall back to our best outcome
+            index = 0;
+        }
+        return this.outcomeIndex.getBid(index);
     }
 
     /**
@@ -400,111 +395,91 @@ public class Agent10 extends AbstractNegotiationParty {
      *
      * @return the generated bid, which has always a utility higher than our reservation value
      */
-    private Bid generateBid() {
-        Bid randomBid;
-
+    Bid generateBid() {
         double acceptableUtility = this.acceptableUtility(); //Calculate the acceptable utility for this moment
-        Bid generatedBid = acceptableRandomBid(acceptableUtility); //Generate a bid which has utility higher than minimum utility
-        double nashPointValue = 0.0; //Initial a nash point
-        double nashPredict; //for predict a better nash point
 
-        if (this.goodBidsList.size() >= 100 && this.num_Round % 20 == 0) { //The round bigger than 100 times，and each 20 round
+        if (this.goodBids.size() >= 100 && this.num_Round % 20 == 0) { //The round bigger than 100 times，and each 20 round
             this.evaluateUtilities(); //set myUndiscountedUtil which is nash value
         }
-        for (int i = 0; i < 100; i++) {
-            // Generate a random bid, which has utility higher than minimum utility
-            randomBid = acceptableRandomBid(acceptableUtility);
-
-            nashPredict = this.getNashPoint(randomBid); //calculate the nash point = own utility * opponent's utility
-            // save the best bid
-            if (nashPredict > nashPointValue) { //if predicted nash value higher than before
-                generatedBid = randomBid;
-                nashPointValue = nashPredict;
-            }
-        }
+        BidDetails bestBid = this.bestRandomBid(acceptableUtility);
+        Bid generatedBid = bestBid.getBid();
+        double nashPointValue = bestBid.getMyUndiscountedUtil();
 
-        if (this.goodBidsList.size() < max_Num_GoodBits) {
-            this.goodBidsList.add(new BidDetails(generatedBid, nashPointValue));
-
-            if (this.goodBidsList.size() == this.max_Num_GoodBits) {
-                this.sortBids(); //Sort the bestGeneratedBids list based on utility for each bid
-            }
-        } else {
-            // The last bid's utility is smallest
-            double worstBidsUtility = this.goodBidsList.get(this.max_Num_GoodBits - 1).getMyUndiscountedUtil();
-            // If new Bid is better than save it and remove the worst bid
-            if (nashPointValue > worstBidsUtility) { //The best utility for that moment
-                this.goodBidsList.remove(0);
-                this.goodBidsList.add(new BidDetails(generatedBid, nashPointValue));
-                this.sortBids(); //Sort bestGeneratedBids
-            }
-        }
+        // Save the bid while there is room, then only if it is better than the worst saved bid, which it replaces
+        this.goodBids.offer(generatedBid, nashPointValue);
 
         // When enough bids are saved, offer one of the best bids
-        if (this.goodBidsList.size() >= this.max_Num_GoodBits) {
-            int index = this.max_Num_GoodBits - randomGenerator.nextInt(5) - 1;// random int 0～4
-            generatedBid = this.goodBidsList.get(index).getBid();
+        if (this.goodBids.isFull()) {
+            generatedBid = this.goodBids.sampleBest(5, this.randomGenerator);
         }
         return generatedBid;
     }
 
-    private void sortBids() {
-        Collections.sort(this.goodBidsList, new Comparator<BidDetails>() {
-            @Override
-            public int compare(BidDetails bid1, BidDetails bid2) {
-                if (bid1.getMyUndiscountedUtil() < bid2.getMyUndiscountedUtil()) {
-                    return -1;
-                } else if (bid1.getMyUndiscountedUtil() == bid2.getMyUndiscountedUtil()) {
-                    return 0;
-                } else {
-                    return 1;
-                }
+    /**
+     * Draws random bids above the acceptable utility and keeps the one with the highest nash value
+     *
+     * @return the best bid, with its nash value as utility
+     */
+    BidDetails bestRandomBid(double acceptableUtility) {
+        long start = System.nanoTime();
+        int count = this.candidateCount();
+
+        // Draw the candidates straight from the index, which has utility higher than minimum utility
+        this.candidates.clear();
+        for (int i = 0; i < count; i++) {
+            int index = this.outcomeIndex.sampleAbove(acceptableUtility, this.randomGenerator);
+            this.outcomeIndex.getValues(Math.max(index, 0), this.candidates.add());
+        }
+        if (this.ownEvaluator == null) {
+            for (int i = 0; i < count; i++) {
+                this.candidates.setOwnUtility(i, this.getUtility(this.codec.decode(this.candidates.getCandidate(i))));
             }
-        });
+        }
+
+        CompiledEvaluator[] opponents = new CompiledEvaluator[this.opponentsMap.size()];
+        int k = 0;
+        for (Opponent opponent : this.opponentsMap.values()) {
+            opponents[k++] = opponent.evaluator;
+        }
+        //nash value = own utility * opponent's utility, keep the best candidate
+        int best = this.candidates.score(this.ownEvaluator, opponents, ForkJoinPool.commonPool());
+
+        this.nanosPerCandidate = (System.nanoTime() - start) / (double) count;
+        return new BidDetails(this.codec.decode(this.candidates.getCandidate(best)), this.candidates.getProduct(best));
+    }
+
+    /**
+     * @return the number of candidates which can be scored in a share of the time of the last round
+     */
+    private int candidateCount() {
+        if (this.roundNanos == 0 || this.nanosPerCandidate == 0) {
+            return MIN_CANDIDATES;
+        }
+        double count = SCORING_SHARE * this.roundNanos / this.nanosPerCandidate;
+        return (int) Math.max(MIN_CANDIDATES, Math.min(MAX_CANDIDATES, count));
     }
 
     private void evaluateUtilities() {
-        for (BidDetails bidDetails : this.goodBidsList) {
-            bidDetails.setMyUndiscountedUtil(this.getNashPoint(bidDetails.getBid())); //使用nash value设置myUndiscountedUtil
+        for (int slot = 0; slot < this.goodBids.size(); slot++) {
+            this.goodBids.setScore(slot, this.getNashPoint(this.goodBids.getBid(slot))); //使用nash value重新排序
         }
     }
 
     private double getNashPoint(Bid bid) {
         double nashValue = this.getUtility(bid); //Get the own utility for this bid
-        for (AgentID agent : this.opponentsMap.keySet()) {
-            nashValue *= this.opponentsMap.get(agent).getOpponentUtility(bid); //nash value = own utility * opponent's utility
+        int[] values = this.codec.encode(bid, this.encodedBid); //Encode once for all the opponents
+        for (Opponent opponent : this.opponentsMap.values()) {
+            nashValue *= opponent.getOpponentUtility(values); //nash value = own utility * opponent's utility
         }
         return nashValue;
     }
 
     //Self modeling
     public AbstractUtilitySpace estimateUtilitySpace_a10() {
-        Domain domain = getDomain();
-        AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
-        BidRanking r = userModel.getBidRanking(); //对给定bid进行排序
-        int totalnum = r.getBidOrder().size();
-        System.out.println("totalnum:" + totalnum);
-        double points = 0;
-        for (Bid b : r.getBidOrder()) {
-
-            List<Issue> issues = b.getIssues();
-            for (Issue issue : issues) {
-                System.out.println(issue.getName() + ": " + b.getValue(issue.getNumber()));
-                System.out.println(issue.getNumber() + "*****************************");
-            }
-
-            for (Issue i : issues) {
-                int no = i.getNumber();
-                ValueDiscrete v = (ValueDiscrete) b.getValue(no);
-                double oldUtil = factory.getUtility(i, v);
-                factory.setUtility(i, v, oldUtil + points);
-            }
-            points += 1;
-        }
-        factory.normalizeWeightsByMaxValues();
-
-        return factory.getUtilitySpace();
-
+        //Each value scores the sum of the positions of the ranked bids containing it, in one pass over the ranking
+        BidRanking r = userModel.getBidRanking();
+        System.out.println("totalnum:" + r.getBidOrder().size());
+        return RankEstimator.estimate(getDomain(), r);
     }
 
     /**
@@ -0,0 +1,200 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.IssueInteger;
+import genius.core.issue.Value;
+import genius.core.issue.ValueInteger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Encodes bids of a domain as vectors of value indices, one entry per issue in the order of
+ * {@link Domain#getIssues()}. The agents work on these vectors internally and only decode to a
+ * {@link Bid} when an offer actually leaves the agent. When all indices fit in 64 bits, a vector
+ * can also be packed into a single long, e.g. to use it as a hash key.
+ */
+public class BidCodec {
+    private final Domain domain;
+    // Number of each issue, by issue position
+    private final int[] issueNumbers;
+    // The values of each issue, by issue position and value index
+    private final Value[][] values;
+    // Maps a value to its index, by issue position
+    private final List<HashMap<Value, Integer>> indices;
+    // Bit offset and width of each issue in a packed bid
+    private final int[] shifts;
+    private final int[] bits;
+    private final boolean packable;
+
+    /**
+     * Constructor, supports discrete and integer issues
+     *
+     * @param domain the domain of the bids to encode
+     */
+    public BidCodec(Domain domain) {
+        this.domain = domain;
+        List<Issue> issues = domain.getIssues();
+        int num_issues = issues.size();
+        this.issueNumbers = new int[num_issues];
+        this.values = new Value[num_issues][];
+        this.indices = new ArrayList<HashMap<Value, Integer>>(num_issues);
+        this.shifts = new int[num_issues];
+        this.bits = new int[num_issues];
+
+        int total_bits = 0;
+        for (int i = 0; i < num_issues; i++) {
+            Issue issue = issues.get(i);
+            this.issueNumbers[i] = issue.getNumber();
+
+            if (issue instanceof IssueDiscrete) {
+                IssueDiscrete discrete = (IssueDiscrete) issue;
+                this.values[i] = discrete.getValues().toArray(new Value[discrete.getNumberOfValues()]);
+            } else if (issue instanceof IssueInteger) {
+                IssueInteger integer = (IssueInteger) issue;
+                this.values[i] = new Value[integer.getUpperBound() - integer.getLowerBound() + 1];
+                for (int v = 0; v < this.values[i].length; v++) {
+                    this.values[i][v] = new ValueInteger(integer.getLowerBound() + v);
+                }
+            } else {
+                throw new IllegalArgumentException("Only discrete and integer issues can be encoded: " + issue);
+            }
+
+            HashMap<Value, Integer> index = new HashMap<Value, Integer>();
+            for (int v = 0; v < this.values[i].length; v++) {
+                index.put(this.values[i][v], v);
+            }
+            this.indices.add(index);
+
+            // Number of bits needed to store the largest value index of this issue
+            this.bits[i] = Math.max(1, 32 - Integer.numberOfLeadingZeros(this.values[i].length - 1));
+            this.shifts[i] = total_bits;
+            total_bits += this.bits[i];
+        }
+        this.packable = total_bits <= 64;
+    }
+
+    public Domain getDomain() {
+        return this.domain;
+    }
+
+    public int getNumberOfIssues() {
+        return this.issueNumbers.length;
+    }
+
+    public int getIssueNumber(int issue) {
+        return this.issueNumbers[issue];
+    }
+
+    public int getNumberOfValues(int issue) {
+        return this.values[issue].length;
+    }
+
+    /**
+     * @return the number of values of each issue, by issue position
+     */
+    public int[] getNumbersOfValues() {
+        int[] numbers = new int[this.values.length];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = this.values[i].length;
+        }
+        return numbers;
+    }
+
+    public Value getValue(int issue, int value) {
+        return this.values[issue][value];
+    }
+
+    /**
+     * @return the index of a value of an issue, or -1 if it is not a value of that issue
+     */
+    public int indexOf(int issue, Value value) {
+        Integer index = this.indices.get(issue).get(value);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Encodes a bid as the value index of each issue
+     *
+     * @param bid the bid to encode
+     * @return a new vector of value indices
+     */
+    public int[] encode(Bid bid) {
+        return encode(bid, new int[this.issueNumbers.length]);
+    }
+
+    /**
+     * Encodes a bid into an existing vector
+     *
+     * @param bid  the bid to encode
+     * @param into vector to fill, one entry per issue
+     * @return the filled vector
+     */
+    public int[] encode(Bid bid, int[] into) {
+        for (int i = 0; i < this.issueNumbers.length; i++) {
+            into[i] = indexOf(i, bid.getValue(this.issueNumbers[i]));
+        }
+        return into;
+    }
+
+    /**
+     * Builds the Genius bid of a vector of value indices
+     *
+     * @param values value index per issue
+     * @return the bid
+     */
+    public Bid decode(int[] values) {
+        HashMap<Integer, Value> bid_values = new HashMap<Integer, Value>();
+        for (int i = 0; i < this.issueNumbers.length; i++) {
+            bid_values.put(this.issueNumbers[i], this.values[i][values[i]]);
+        }
+        return new Bid(this.domain, bid_values);
+    }
+
+    /**
+     * Fills a vector with a uniformly random value for every issue
+     *
+     * @return the filled vector
+     */
+    public int[] randomBid(Random random, int[] into) {
+        for (int i = 0; i < this.values.length; i++) {
+            into[i] = random.nextInt(this.values[i].length);
+        }
+        return into;
+    }
+
+    /**
+     * @return true if every bid of the domain can be packed into a long
+     */
+    public boolean isPackable() {
+        return this.packable;
+    }
+
+    /**
+     * Packs a vector of value indices into a long, see {@link #isPackable()}
+     */
+    public long pack(int[] values) {
+        long packed = 0L;
+        for (int i = 0; i < this.issueNumbers.length; i++) {
+            packed |= ((long) values[i]) << this.shifts[i];
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a long created by {@link #pack(int[])} into a vector of value indices
+     *
+     * @return the filled vector
+     */
+    public int[] unpack(long packed, int[] into) {
+        for (int i = 0; i < this.issueNumbers.length; i++) {
+            into[i] = (int) ((packed >>> this.shifts[i]) & ((1L << this.bits[i]) - 1));
+        }
+        return into;
+    }
+}
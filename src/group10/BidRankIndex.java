@@ -0,0 +1,209 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.uncertainty.BidRanking;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the rank of a bid in a bid ranking in constant time. The ranked bids are packed into longs
+ * (see {@link BidCodec#pack(int[])}) and stored in an open addressing table mapping each key to
+ * its position in {@link BidRanking#getBidOrder()}. When the bids of the domain do not fit in a
+ * long, the ranks are kept in a hash map of the bids instead.
+ * <p>
+ * Bids which are not in the ranking get an interpolated rank: the bids are scored with the rank-sum
+ * estimate of {@link RankEstimator}, and an unranked bid is placed between the ranked bids whose
+ * scores surround its own.
+ */
+public class BidRankIndex {
+    private static final int EMPTY = -1;
+
+    private final BidCodec codec;
+    private final int size;
+    // Open addressing table, a slot is empty when its rank is EMPTY
+    private final long[] keys;
+    private final int[] ranks;
+    private final int shift;
+    // Rank of each bid when the bids can not be packed, null otherwise
+    private final Map<Bid, Integer> bidRanks;
+    // Estimated utility of the ranked bids, made nondecreasing with the rank
+    private final double[] scores;
+    private final CompiledEvaluator estimate;
+    private final int[] values;
+
+    /**
+     * Constructor, indexes all the bids of the ranking
+     *
+     * @param domain  the domain of the ranked bids
+     * @param ranking the bids from the lowest to the highest utility
+     */
+    public BidRankIndex(Domain domain, BidRanking ranking) {
+        this.codec = new BidCodec(domain);
+        List<Bid> bids = ranking.getBidOrder();
+        this.size = bids.size();
+        this.values = new int[this.codec.getNumberOfIssues()];
+
+        if (this.codec.isPackable()) {
+            // At most half full
+            int capacity = Integer.highestOneBit(Math.max(2, 2 * this.size - 1)) << 1;
+            this.keys = new long[capacity];
+            this.ranks = new int[capacity];
+            this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            for (int s = 0; s < capacity; s++) {
+                this.ranks[s] = EMPTY;
+            }
+            this.bidRanks = null;
+        } else {
+            this.keys = null;
+            this.ranks = null;
+            this.shift = 0;
+            this.bidRanks = new HashMap<Bid, Integer>(2 * this.size);
+            for (int r = 0; r < this.size; r++) {
+                if (!this.bidRanks.containsKey(bids.get(r))) {
+                    this.bidRanks.put(bids.get(r), r);
+                }
+            }
+        }
+
+        this.estimate = CompiledEvaluator.compile(RankEstimator.estimate(domain, ranking), this.codec);
+        this.scores = new double[this.size];
+        for (int r = 0; r < this.size; r++) {
+            double score = Double.NEGATIVE_INFINITY;
+            if (encode(bids.get(r))) {
+                if (this.bidRanks == null) {
+                    put(this.codec.pack(this.values), r);
+                }
+                score = this.estimate.getUtility(this.values);
+            }
+            this.scores[r] = Math.max(r > 0 ? this.scores[r - 1] : Double.NEGATIVE_INFINITY, score);
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean contains(Bid bid) {
+        return getRank(bid) != EMPTY;
+    }
+
+    /**
+     * @return the position of the bid in the ranking, 0 being the worst bid, or -1 if it is not ranked
+     */
+    public int getRank(Bid bid) {
+        if (this.bidRanks != null) {
+            Integer rank = this.bidRanks.get(bid);
+            return rank == null ? EMPTY : rank;
+        }
+        if (!encode(bid)) {
+            return EMPTY;
+        }
+        long key = this.codec.pack(this.values);
+        for (int slot = slot(key); this.ranks[slot] != EMPTY; slot = (slot + 1) & (this.keys.length - 1)) {
+            if (this.keys[slot] == key) {
+                return this.ranks[slot];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return the fraction of the ranked bids which are at least as good as the bid, e.g. below 0.1
+     * for the best 10%, or -1 if the bid is not ranked
+     */
+    public double getPercentile(Bid bid) {
+        int rank = getRank(bid);
+        if (rank == EMPTY) {
+            return EMPTY;
+        }
+        return (this.size - rank) / (double) this.size;
+    }
+
+    /**
+     * @return the rank of the bid if it is ranked, otherwise a fractional rank interpolated between
+     * the ranked bids with the closest estimated utility, or -1 if the bid has a value unknown to
+     * the domain
+     */
+    public double estimateRank(Bid bid) {
+        int rank = getRank(bid);
+        if (rank != EMPTY || this.size == 0 || !encode(bid)) {
+            return rank;
+        }
+        double score = this.estimate.getUtility(this.values);
+
+        // First ranked bid scoring more than this bid
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.scores[mid] > score) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        if (low == this.size) {
+            return this.size - 1;
+        }
+        double below = this.scores[low - 1];
+        double above = this.scores[low];
+        if (below == Double.NEGATIVE_INFINITY) {
+            // Only bids with unknown values are ranked below
+            return low;
+        }
+        return low - 1 + (score - below) / (above - below);
+    }
+
+    /**
+     * @return the percentile of the bid, see {@link #getPercentile(Bid)}, interpolated for bids which
+     * are not ranked, or -1 if the bid has a value unknown to the domain
+     */
+    public double estimatePercentile(Bid bid) {
+        double rank = estimateRank(bid);
+        if (rank == EMPTY) {
+            return EMPTY;
+        }
+        return (this.size - rank) / (double) this.size;
+    }
+
+    /**
+     * Encodes a bid into the values vector
+     *
+     * @return false if the bid has a value unknown to the domain
+     */
+    private boolean encode(Bid bid) {
+        this.codec.encode(bid, this.values);
+        for (int value : this.values) {
+            if (value < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a bid unless it is already there, so a bid ranked twice keeps its first rank as with
+     * {@link List#indexOf(Object)}
+     */
+    private void put(long key, int rank) {
+        int slot = slot(key);
+        while (this.ranks[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & (this.keys.length - 1);
+        }
+        this.keys[slot] = key;
+        this.ranks[slot] = rank;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+    }
+}
@@ -0,0 +1,97 @@
+package group10;
+
+/**
+ * Counts how often each issue changes between consecutive bids of an opponent, over the whole
+ * history and over the last rounds. The count of changes of every issue after each of the last
+ * bids is kept in a ring buffer, so the changes within the last rounds are a difference of two
+ * entries of the ring and a query takes O(issues), whatever the length of the history.
+ */
+public class ChangeWindow {
+    private final int numIssues;
+    private final int maxRounds;
+    // Changes of each issue since the first bid, as counted after each of the last maxRounds bids,
+    // bid b being at (b % maxRounds) * numIssues
+    private final int[] ring;
+    private final int[] changes;
+    private final int[] lastValues;
+    private int size;
+
+    /**
+     * Constructor
+     *
+     * @param numIssues the number of issues of the bids
+     * @param maxRounds the largest number of rounds which will be queried
+     */
+    public ChangeWindow(int numIssues, int maxRounds) {
+        if (maxRounds <= 0) {
+            throw new IllegalArgumentException("The window must hold at least one round: " + maxRounds);
+        }
+        this.numIssues = numIssues;
+        this.maxRounds = maxRounds;
+        this.ring = new int[maxRounds * numIssues];
+        this.changes = new int[numIssues];
+        this.lastValues = new int[numIssues];
+    }
+
+    /**
+     * @return the number of bids added
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int getMaxRounds() {
+        return this.maxRounds;
+    }
+
+    /**
+     * Adds the next bid of the opponent
+     *
+     * @param values the bid encoded as the value index of each issue, see {@link BidCodec}
+     */
+    public void add(int[] values) {
+        if (this.size > 0) {
+            for (int i = 0; i < this.numIssues; i++) {
+                if (values[i] != this.lastValues[i]) {
+                    this.changes[i]++;
+                }
+            }
+        }
+        System.arraycopy(values, 0, this.lastValues, 0, this.numIssues);
+        System.arraycopy(this.changes, 0, this.ring, (this.size % this.maxRounds) * this.numIssues, this.numIssues);
+        this.size++;
+    }
+
+    /**
+     * @return the number of times the issue changed over all the bids
+     */
+    public int getChanges(int issue) {
+        return this.changes[issue];
+    }
+
+    /**
+     * Counts the changes of each issue between the last given number of bids
+     *
+     * @param rounds the number of last bids, at most the number of bids added and {@link #getMaxRounds()}
+     * @param into   array receiving the number of changes of each issue
+     * @return the given array
+     */
+    public int[] getChanges(int rounds, int[] into) {
+        if (rounds > this.size || rounds > this.maxRounds) {
+            throw new IllegalArgumentException("Cannot count the changes of the last " + rounds + " of "
+                    + this.size + " bids in a window of " + this.maxRounds);
+        }
+        if (rounds <= 1) {
+            for (int i = 0; i < this.numIssues; i++) {
+                into[i] = 0;
+            }
+            return into;
+        }
+        int last = ((this.size - 1) % this.maxRounds) * this.numIssues;
+        int first = ((this.size - rounds) % this.maxRounds) * this.numIssues;
+        for (int i = 0; i < this.numIssues; i++) {
+            into[i] = this.ring[last + i] - this.ring[first + i];
+        }
+        return into;
+    }
+}
@@ -0,0 +1,199 @@
+package group10;
+
+/**
+ * Append-only history of the bids of an opponent, stored as one column of value indices per
+ * issue (see {@link BidCodec}) instead of a {@link genius.core.BidHistory} of full bids. The
+ * columns hold bytes when every issue has at most 256 values, ints otherwise.
+ * <p>
+ * The history can be bounded to a number of rows. When it is full, every other row is dropped
+ * and from then on only every other bid is stored, so the history keeps covering the whole
+ * session at a coarser resolution. Row r always holds the bid of round r * {@link #getStride()}.
+ */
+public class CompactBidHistory {
+    // Number of rows allocated at first
+    private static final int INITIAL_ROWS = 64;
+
+    private final int numIssues;
+    private final int maxRows;
+    // One column per issue, only one of the two is used
+    private byte[][] bytes;
+    private int[][] ints;
+    private int capacity;
+    private int rows;
+    private int size;
+    private int stride = 1;
+
+    /**
+     * Constructor of a history without bound
+     *
+     * @param numValues the number of values of each issue
+     */
+    public CompactBidHistory(int[] numValues) {
+        this(numValues, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param numValues the number of values of each issue
+     * @param maxRows   the largest number of bids stored, at least 2
+     */
+    public CompactBidHistory(int[] numValues, int maxRows) {
+        if (maxRows < 2) {
+            throw new IllegalArgumentException("The history must hold at least 2 bids: " + maxRows);
+        }
+        this.numIssues = numValues.length;
+        // An even bound, so that a round kept after halving the rows is a multiple of the new stride
+        this.maxRows = maxRows & ~1;
+        this.capacity = Math.min(INITIAL_ROWS, this.maxRows);
+
+        boolean narrow = true;
+        for (int count : numValues) {
+            narrow &= count <= 256;
+        }
+        if (narrow) {
+            this.bytes = new byte[this.numIssues][this.capacity];
+        } else {
+            this.ints = new int[this.numIssues][this.capacity];
+        }
+    }
+
+    /**
+     * @return the number of bids added
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of bids stored
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return the number of rounds between two stored bids
+     */
+    public int getStride() {
+        return this.stride;
+    }
+
+    /**
+     * @return the round of the bid stored at a row, from 0 for the first bid added
+     */
+    public int getRound(int row) {
+        return row * this.stride;
+    }
+
+    /**
+     * @return the first row holding one of the last given number of bids
+     */
+    public int firstRowOfLast(int rounds) {
+        int first_round = Math.max(0, this.size - rounds);
+        return Math.min(this.rows, (first_round + this.stride - 1) / this.stride);
+    }
+
+    /**
+     * Adds the next bid
+     *
+     * @param values the bid encoded as the value index of each issue
+     */
+    public void add(int[] values) {
+        int round = this.size++;
+        if (round % this.stride != 0) {
+            return;
+        }
+        if (this.rows == this.maxRows) {
+            this.halve();
+            if (round % this.stride != 0) {
+                return;
+            }
+        }
+        if (this.rows == this.capacity) {
+            this.grow(Math.min(this.maxRows, 2 * this.capacity));
+        }
+        for (int i = 0; i < this.numIssues; i++) {
+            if (this.bytes != null) {
+                this.bytes[i][this.rows] = (byte) values[i];
+            } else {
+                this.ints[i][this.rows] = values[i];
+            }
+        }
+        this.rows++;
+    }
+
+    public int getValue(int row, int issue) {
+        if (row >= this.rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + this.rows);
+        }
+        return this.bytes != null ? this.bytes[issue][row] & 0xFF : this.ints[issue][row];
+    }
+
+    /**
+     * @return the given array, filled with the value indices of the bid at a row
+     */
+    public int[] getValues(int row, int[] into) {
+        for (int i = 0; i < this.numIssues; i++) {
+            into[i] = this.getValue(row, i);
+        }
+        return into;
+    }
+
+    /**
+     * Counts the changes of each issue between consecutive bids, over the last given number of
+     * bids. This needs every one of those bids, so it fails once the history was thinned out.
+     *
+     * @param rounds the number of last bids
+     * @param into   array receiving the number of changes of each issue
+     * @return the given array, or null if the last bids are not all stored
+     */
+    public int[] getChanges(int rounds, int[] into) {
+        if (this.stride != 1 || rounds > this.rows) {
+            return null;
+        }
+        for (int i = 0; i < this.numIssues; i++) {
+            int count = 0;
+            for (int row = this.rows - rounds + 1; row < this.rows; row++) {
+                if (this.getValue(row, i) != this.getValue(row - 1, i)) {
+                    count++;
+                }
+            }
+            into[i] = count;
+        }
+        return into;
+    }
+
+    /**
+     * Keeps the even rows and doubles the stride
+     */
+    private void halve() {
+        int kept = (this.rows + 1) / 2;
+        for (int i = 0; i < this.numIssues; i++) {
+            for (int row = 0; row < kept; row++) {
+                if (this.bytes != null) {
+                    this.bytes[i][row] = this.bytes[i][2 * row];
+                } else {
+                    this.ints[i][row] = this.ints[i][2 * row];
+                }
+            }
+        }
+        this.rows = kept;
+        this.stride *= 2;
+    }
+
+    private void grow(int capacity) {
+        for (int i = 0; i < this.numIssues; i++) {
+            if (this.bytes != null) {
+                byte[] column = new byte[capacity];
+                System.arraycopy(this.bytes[i], 0, column, 0, this.rows);
+                this.bytes[i] = column;
+            } else {
+                int[] column = new int[capacity];
+                System.arraycopy(this.ints[i], 0, column, 0, this.rows);
+                this.ints[i] = column;
+            }
+        }
+        this.capacity = capacity;
+    }
+}
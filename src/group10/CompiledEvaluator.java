@@ -0,0 +1,116 @@
+package group10;
+
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * An additive evaluator compiled into flat primitive arrays. The weights are indexed by issue
+ * position and the value scores by issue position and value index, so a bid can be scored
+ * without boxing or map lookups.
+ */
+public class CompiledEvaluator {
+    // Start of the scores of each issue in the scores array
+    private final int[] offsets;
+    // Weight of each issue
+    private final double[] weights;
+    // Score of each value, all issues stored one after the other
+    private final double[] scores;
+
+    /**
+     * Constructor
+     *
+     * @param numberOfValues the number of values of each issue
+     */
+    public CompiledEvaluator(int[] numberOfValues) {
+        this.offsets = new int[numberOfValues.length + 1];
+        for (int i = 0; i < numberOfValues.length; i++) {
+            this.offsets[i + 1] = this.offsets[i] + numberOfValues[i];
+        }
+        this.weights = new double[numberOfValues.length];
+        this.scores = new double[this.offsets[numberOfValues.length]];
+    }
+
+    /**
+     * Compiles the weights and the evaluations of an additive utility space. Discrete evaluations
+     * are read directly, other evaluators, e.g. of integer issues, are asked for the evaluation of
+     * a bid holding each value.
+     *
+     * @param space the utility space to compile
+     * @param codec the encoding of the bids that will be scored
+     * @return an evaluator giving the same utilities as the utility space
+     */
+    public static CompiledEvaluator compile(AdditiveUtilitySpace space, BidCodec codec) {
+        CompiledEvaluator compiled = new CompiledEvaluator(codec.getNumbersOfValues());
+        int[] probe = new int[codec.getNumberOfIssues()];
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            int issue_number = codec.getIssueNumber(i);
+            compiled.setWeight(i, space.getWeight(issue_number));
+
+            Evaluator evaluator = space.getEvaluator(issue_number);
+            for (int v = 0; v < codec.getNumberOfValues(i); v++) {
+                try {
+                    if (evaluator instanceof EvaluatorDiscrete) {
+                        compiled.setScore(i, v,
+                                ((EvaluatorDiscrete) evaluator).getEvaluation((ValueDiscrete) codec.getValue(i, v)));
+                    } else {
+                        probe[i] = v;
+                        compiled.setScore(i, v, evaluator.getEvaluation(space, codec.decode(probe), issue_number));
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            probe[i] = 0;
+        }
+        return compiled;
+    }
+
+    public int getNumberOfIssues() {
+        return this.weights.length;
+    }
+
+    public int getNumberOfValues(int issue) {
+        return this.offsets[issue + 1] - this.offsets[issue];
+    }
+
+    public double getWeight(int issue) {
+        return this.weights[issue];
+    }
+
+    public void setWeight(int issue, double weight) {
+        this.weights[issue] = weight;
+    }
+
+    public double getScore(int issue, int value) {
+        return this.scores[this.offsets[issue] + value];
+    }
+
+    public void setScore(int issue, int value, double score) {
+        this.scores[this.offsets[issue] + value] = score;
+    }
+
+    /**
+     * The weighted score of a single value, i.e. what it adds to the utility of a bid
+     *
+     * @return weight of the issue times the score of the value
+     */
+    public double getContribution(int issue, int value) {
+        return this.weights[issue] * this.scores[this.offsets[issue] + value];
+    }
+
+    /**
+     * Computes the utility of a bid given as the value index of each issue
+     *
+     * @param values value index per issue position
+     * @return the weighted sum of the value scores
+     */
+    public double getUtility(int[] values) {
+        double utility = 0.0;
+        for (int i = 0; i < this.weights.length; i++) {
+            utility += this.weights[i] * this.scores[this.offsets[i] + values[i]];
+        }
+        return utility;
+    }
+}
@@ -0,0 +1,147 @@
+package group10;
+
+/**
+ * Maps the time of a session to the positions of an {@link OutcomeIndex} around the target utility
+ * of a concession curve, to narrow the searches of a turn. The time [0, 1] is divided into
+ * buckets, each holding the positions of the outcomes whose utility lies between the targets at
+ * its start and end, plus a margin above. A bucket is only filled when a turn falls in it, and it
+ * is split into smaller buckets while it holds too many positions, which happens where the curve
+ * concedes fast, typically near the deadline.
+ * <p>
+ * This is a narrower search, not a lookup: the target moves within a bucket, so a turn still
+ * computes the target and binary searches the positions of its bucket, at most maxSpan of them
+ * unless the bucket could not be split further. The answers are exact: a search within a bucket
+ * is checked against its neighbours, and the whole index is searched when the bucket does not
+ * hold the answer. boaexample.IndexedSearchCheck compares the answers with searches of the whole
+ * index on the domains of the templates.
+ */
+public abstract class ConcessionSchedule {
+    // Number of parts a bucket is split into
+    private static final int SPLIT = 4;
+    // Number of times a bucket can be split
+    private static final int MAX_DEPTH = 8;
+
+    private final OutcomeIndex outcomes;
+    private final double margin;
+    private final int maxSpan;
+    private final Bucket[] buckets;
+
+    private class Bucket {
+        private final double start;
+        private final double end;
+        private final int depth;
+        // Positions [low, high) of the outcomes between the targets at the start and the end
+        private final int low;
+        private final int high;
+        private Bucket[] children;
+
+        Bucket(double start, double end, int depth) {
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+            double first = target(start);
+            double last = target(end);
+            this.low = Math.max(0, outcomes.firstAtMost(Math.max(first, last) + margin) - 1);
+            this.high = Math.min(outcomes.size(), outcomes.firstBelow(Math.min(first, last)) + 1);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param outcomes the outcomes offered
+     * @param buckets  the number of buckets the time is divided into at first
+     * @param margin   utility above the target which the buckets also cover
+     * @param maxSpan  the number of positions above which a bucket is split
+     */
+    public ConcessionSchedule(OutcomeIndex outcomes, int buckets, double margin, int maxSpan) {
+        this.outcomes = outcomes;
+        this.margin = margin;
+        this.maxSpan = maxSpan;
+        this.buckets = new Bucket[buckets];
+    }
+
+    /**
+     * @return the target utility at a time, which must not increase or not decrease with the time
+     */
+    protected abstract double target(double time);
+
+    /**
+     * @return the position of the first outcome whose utility is at most the given utility, which
+     * should be at most the margin above the target at the given time
+     */
+    public int firstAtMost(double utility, double time) {
+        Bucket bucket = this.bucket(time);
+        if (bucket != null) {
+            int index = this.outcomes.firstAtMost(utility, bucket.low, bucket.high);
+            if ((index == this.outcomes.size() || this.outcomes.getUtility(index) <= utility)
+                    && (index == 0 || this.outcomes.getUtility(index - 1) > utility)) {
+                return index;
+            }
+        }
+        return this.outcomes.firstAtMost(utility);
+    }
+
+    /**
+     * @return the position of the first outcome whose utility is below the given utility, which
+     * should be at most the margin above the target at the given time
+     */
+    public int firstBelow(double utility, double time) {
+        Bucket bucket = this.bucket(time);
+        if (bucket != null) {
+            int index = this.outcomes.firstBelow(utility, bucket.low, bucket.high);
+            if ((index == this.outcomes.size() || this.outcomes.getUtility(index) < utility)
+                    && (index == 0 || this.outcomes.getUtility(index - 1) >= utility)) {
+                return index;
+            }
+        }
+        return this.outcomes.firstBelow(utility);
+    }
+
+    /**
+     * @return the position of the outcome whose utility is the nearest to the target at a time, as
+     * {@link OutcomeIndex#indexNearUtility(double)}
+     */
+    public int indexNearTarget(double time) {
+        double utility = this.target(time);
+        int index = this.firstAtMost(utility, time);
+        if (index == this.outcomes.size()) {
+            return index - 1;
+        }
+        if (index > 0 && this.outcomes.getUtility(index - 1) - utility < utility - this.outcomes.getUtility(index)) {
+            return index - 1;
+        }
+        return index;
+    }
+
+    /**
+     * @return the smallest bucket holding the time, filled or split on the way, or null if the time
+     * is outside [0, 1]
+     */
+    private Bucket bucket(double time) {
+        if (!(time >= 0 && time <= 1)) {
+            return null;
+        }
+        int top = Math.min(this.buckets.length - 1, (int) (time * this.buckets.length));
+        if (this.buckets[top] == null) {
+            this.buckets[top] = new Bucket(top / (double) this.buckets.length,
+                    (top + 1) / (double) this.buckets.length, 0);
+        }
+        Bucket bucket = this.buckets[top];
+        while (true) {
+            if (bucket.children == null) {
+                if (bucket.high - bucket.low <= this.maxSpan || bucket.depth >= MAX_DEPTH) {
+                    return bucket;
+                }
+                bucket.children = new Bucket[SPLIT];
+            }
+            double width = (bucket.end - bucket.start) / SPLIT;
+            int child = Math.max(0, Math.min(SPLIT - 1, (int) ((time - bucket.start) / width)));
+            if (bucket.children[child] == null) {
+                bucket.children[child] = new Bucket(bucket.start + child * width,
+                        child == SPLIT - 1 ? bucket.end : bucket.start + (child + 1) * width, bucket.depth + 1);
+            }
+            bucket = bucket.children[child];
+        }
+    }
+}
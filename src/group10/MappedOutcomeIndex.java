@@ -0,0 +1,96 @@
+package group10;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An {@link OutcomeIndex} read from a file written by {@link OutcomeIndexWriter}. The records are
+ * memory-mapped, so opening the index costs almost nothing and the outcomes stay off the heap,
+ * which makes it usable for domains whose outcome space does not fit in memory.
+ * <p>
+ * File layout, big-endian: magic, version, fingerprint of the utility space, number of issues,
+ * number of values of each issue and number of records, followed by the records sorted from the
+ * highest to the lowest utility. A record is the utility as a double and the packed bid as a long.
+ */
+public class MappedOutcomeIndex extends OutcomeIndex {
+    static final int MAGIC = 0x4F494458; // "OIDX"
+    static final int VERSION = 1;
+    static final int RECORD_BYTES = 16;
+    // Records per mapped segment, a single mapping is limited to 2GB
+    private static final int SEGMENT_SHIFT = 26;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final int size;
+    private final long fingerprint;
+
+    /**
+     * Maps an index file
+     *
+     * @param file  the index file
+     * @param codec the encoding of the bids of the domain, it must match the one of the file
+     * @throws IOException if the file can not be read or does not belong to the domain
+     */
+    public MappedOutcomeIndex(File file, BidCodec codec) throws IOException {
+        super(codec);
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not an outcome index");
+            }
+            this.fingerprint = in.readLong();
+            int num_issues = in.readInt();
+            if (num_issues != codec.getNumberOfIssues()) {
+                throw new IOException(file + " does not belong to domain " + codec.getDomain().getName());
+            }
+            for (int i = 0; i < num_issues; i++) {
+                if (in.readInt() != codec.getNumberOfValues(i)) {
+                    throw new IOException(file + " does not belong to domain " + codec.getDomain().getName());
+                }
+            }
+            long count = in.readLong();
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException(file + " has more than " + Integer.MAX_VALUE + " records");
+            }
+            this.size = (int) count;
+
+            // The mappings stay valid after the channel is closed
+            FileChannel channel = in.getChannel();
+            long start = in.getFilePointer();
+            int num_segments = (this.size + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+            this.segments = new MappedByteBuffer[num_segments];
+            for (int s = 0; s < num_segments; s++) {
+                long records = Math.min(1L << SEGMENT_SHIFT, count - ((long) s << SEGMENT_SHIFT));
+                this.segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        start + ((long) s << SEGMENT_SHIFT) * RECORD_BYTES, records * RECORD_BYTES);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the fingerprint of the utility space the file was written for
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double getUtility(int index) {
+        return this.segments[index >>> SEGMENT_SHIFT].getDouble((index & SEGMENT_MASK) * RECORD_BYTES);
+    }
+
+    @Override
+    public long getOutcome(int index) {
+        return this.segments[index >>> SEGMENT_SHIFT].getLong((index & SEGMENT_MASK) * RECORD_BYTES + 8);
+    }
+}
@@ -0,0 +1,226 @@
+package group10;
+
+import java.util.SplittableRandom;
+
+/**
+ * Simulated annealing over bids encoded as value indices, searching for a bid close to the Nash
+ * point between our utility and the predicted utilities of the opponents. The energy of a bid is
+ * <pre>
+ *     u * p_1 * ... * p_n + fairness * mean_k(1 / max(0.01, |u - p_k|))
+ * </pre>
+ * where u is our utility and p_k the predicted utility of opponent k, randomly scaled by
+ * (1 +/- noise) to model the uncertainty of the opponent models. With a single opponent this is
+ * u * p + fairness / max(0.01, |u - p|).
+ * <p>
+ * A move changes the value of a single issue, so all utilities are updated by the difference of
+ * the two value contributions instead of scoring the whole bid again, in one pass over the
+ * opponents. The search works in place on the given vector and does not allocate.
+ */
+public class NashAnnealer {
+    private final CompiledEvaluator own;
+    private CompiledEvaluator[] opponents = new CompiledEvaluator[0];
+    private final SplittableRandom random;
+    // Predicted utility of each opponent for the current and for the next bid
+    private double[] predicted = new double[0];
+    private double[] nextPredicted = new double[0];
+    // Best bid visited by the current search
+    private int[] best = new int[0];
+
+    // Starting temperature, multiplied by the cooling factor on every iteration
+    private double initialTemperature = 26;
+    private double cooling = 0.1;
+    // Weight of the term rewarding bids where both utilities are close
+    private double fairness = 0.3;
+    // Relative uncertainty of the predicted opponent utility
+    private double noise = 0.1;
+    private int iterations = 4000;
+
+    /**
+     * Constructor
+     *
+     * @param own  our utility
+     * @param seed seed of the random generator
+     */
+    public NashAnnealer(CompiledEvaluator own, long seed) {
+        this(own, new SplittableRandom(seed));
+    }
+
+    public NashAnnealer(CompiledEvaluator own, SplittableRandom random) {
+        this.own = own;
+        this.random = random;
+    }
+
+    /**
+     * @param opponent the predicted utility of the only opponent, it may be updated between searches
+     */
+    public void setOpponent(CompiledEvaluator opponent) {
+        setOpponents(new CompiledEvaluator[]{opponent});
+    }
+
+    /**
+     * @param opponents the predicted utilities of the opponents, they may be updated between searches
+     */
+    public void setOpponents(CompiledEvaluator[] opponents) {
+        this.opponents = opponents;
+        if (this.predicted.length != opponents.length) {
+            this.predicted = new double[opponents.length];
+            this.nextPredicted = new double[opponents.length];
+        }
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public void setTemperature(double initialTemperature, double cooling) {
+        this.initialTemperature = initialTemperature;
+        this.cooling = cooling;
+    }
+
+    public void setFairness(double fairness) {
+        this.fairness = fairness;
+    }
+
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Anneals a bid in place. A move is only taken when our utility of the new bid is above the
+     * given minimum.
+     *
+     * @param state      the starting bid, holds the best bid visited afterwards
+     * @param minUtility our minimum utility for a move to be taken
+     * @return the energy of the best bid visited, without noise
+     */
+    public double anneal(int[] state, double minUtility) {
+        return anneal(state, minUtility, false, 0L);
+    }
+
+    /**
+     * Anneals a bid in place, stopping early when the deadline is reached. The bid the search ends
+     * on is not always the best it visited, so the best one is kept. The starting bid only counts
+     * when our utility of it is above the minimum, unless no bid visited is.
+     *
+     * @param state      the starting bid, holds the best bid visited afterwards
+     * @param minUtility our minimum utility for a move to be taken
+     * @param deadline   value of {@link System#nanoTime()} at which to stop
+     * @return the energy of the best bid visited, without noise
+     */
+    public double anneal(int[] state, double minUtility, long deadline) {
+        return anneal(state, minUtility, true, deadline);
+    }
+
+    /**
+     * @param timed    false to run all the iterations, nanoTime values have no sentinel for "never"
+     * @param deadline value of {@link System#nanoTime()} at which to stop when timed
+     */
+    private double anneal(int[] state, double minUtility, boolean timed, long deadline) {
+        int num_issues = state.length;
+        int num_opponents = this.opponents.length;
+        double our_utility = this.own.getUtility(state);
+        for (int k = 0; k < num_opponents; k++) {
+            this.predicted[k] = this.opponents[k].getUtility(state);
+        }
+        double temperature = this.initialTemperature;
+        if (this.best.length != num_issues) {
+            this.best = new int[num_issues];
+        }
+        System.arraycopy(state, 0, this.best, 0, num_issues);
+        double best_energy = our_utility > minUtility
+                ? energy(our_utility, this.predicted, false) : Double.NEGATIVE_INFINITY;
+
+        for (int n = 0; n < this.iterations; n++) {
+            if (timed && (n & 1023) == 0 && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            double curr_energy = energy(our_utility, this.predicted, true);
+
+            // Alter a single issue putting a random value on it
+            int issue = this.random.nextInt(num_issues);
+            int old_value = state[issue];
+            int new_value = this.random.nextInt(this.own.getNumberOfValues(issue));
+            double next_utility = our_utility
+                    - this.own.getContribution(issue, old_value) + this.own.getContribution(issue, new_value);
+            for (int k = 0; k < num_opponents; k++) {
+                this.nextPredicted[k] = this.predicted[k]
+                        - this.opponents[k].getContribution(issue, old_value)
+                        + this.opponents[k].getContribution(issue, new_value);
+            }
+
+            double next_energy = energy(next_utility, this.nextPredicted, true);
+
+            if (next_utility > minUtility
+                    && (next_energy > curr_energy
+                    || Math.exp((next_energy - curr_energy) / temperature) > this.random.nextDouble())) {
+                state[issue] = new_value;
+                our_utility = next_utility;
+                double[] swap = this.predicted;
+                this.predicted = this.nextPredicted;
+                this.nextPredicted = swap;
+
+                double energy = energy(our_utility, this.predicted, false);
+                if (energy > best_energy) {
+                    best_energy = energy;
+                    System.arraycopy(state, 0, this.best, 0, num_issues);
+                }
+            }
+            temperature *= this.cooling;
+        }
+
+        System.arraycopy(this.best, 0, state, 0, num_issues);
+        for (int k = 0; k < num_opponents; k++) {
+            this.predicted[k] = this.opponents[k].getUtility(state);
+        }
+        return energy(this.own.getUtility(state), this.predicted, false);
+    }
+
+    public int getNumberOfValues(int issue) {
+        return this.own.getNumberOfValues(issue);
+    }
+
+    /**
+     * @return our utility of a bid
+     */
+    public double getOwnUtility(int[] state) {
+        return this.own.getUtility(state);
+    }
+
+    /**
+     * @return the random generator of this annealer, e.g. to draw a starting bid
+     */
+    public SplittableRandom getRandom() {
+        return this.random;
+    }
+
+    /**
+     * @return the energy of a bid given our utility and the predicted utility of a single opponent
+     */
+    public double energy(double ourUtility, double predicted) {
+        return ourUtility * predicted + this.fairness / Math.max(0.01, Math.abs(ourUtility - predicted));
+    }
+
+    /**
+     * @return the energy of a bid given our utility and the predicted utility of each opponent
+     */
+    private double energy(double ourUtility, double[] predicted, boolean noise) {
+        if (predicted.length == 0) {
+            return ourUtility;
+        }
+        double product = ourUtility;
+        double closeness = 0.0;
+        for (int k = 0; k < predicted.length; k++) {
+            double p = noise ? noisy(predicted[k]) : predicted[k];
+            product *= p;
+            closeness += 1.0 / Math.max(0.01, Math.abs(ourUtility - p));
+        }
+        return product + this.fairness * closeness / predicted.length;
+    }
+
+    private double noisy(double predicted) {
+        if (this.random.nextDouble() > 0.5) {
+            return predicted + this.noise * predicted;
+        }
+        return predicted - this.noise * predicted;
+    }
+}
@@ -0,0 +1,172 @@
+package group10;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores a block of candidate bids by their Nash product. The candidates are value index vectors
+ * (see {@link BidCodec}), filled in place by the caller, and scoring fills the own utility, the
+ * utility of every opponent and the product of each candidate in flat arrays, one evaluator at a
+ * time over the whole block. Large blocks are split over a {@link ForkJoinPool}.
+ */
+public class NashBatch {
+    // Blocks with at least this many candidates are scored in parallel when given a pool
+    public static final int PARALLEL_THRESHOLD = 1 << 12;
+    // Number of candidates scored by a single task
+    private static final int CHUNK_SIZE = 1 << 10;
+
+    private final int numIssues;
+    private int[][] candidates = new int[0][];
+    private double[] own = new double[0];
+    private double[][] opponents = new double[0][];
+    private double[] products = new double[0];
+    private int size;
+
+    public NashBatch(int numIssues) {
+        this.numIssues = numIssues;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all the candidates, keeping the arrays for the next block
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Adds a candidate
+     *
+     * @return the values of the new candidate, to be filled by the caller
+     */
+    public int[] add() {
+        if (this.size == this.candidates.length) {
+            this.ensureCapacity(Math.max(16, 2 * this.size));
+        }
+        return this.candidates[this.size++];
+    }
+
+    public int[] getCandidate(int candidate) {
+        return this.candidates[candidate];
+    }
+
+    public double getOwnUtility(int candidate) {
+        return this.own[candidate];
+    }
+
+    /**
+     * Sets the own utility of a candidate, for own preferences which cannot be compiled
+     */
+    public void setOwnUtility(int candidate, double utility) {
+        this.own[candidate] = utility;
+    }
+
+    public double getOpponentUtility(int opponent, int candidate) {
+        return this.opponents[opponent][candidate];
+    }
+
+    public double getProduct(int candidate) {
+        return this.products[candidate];
+    }
+
+    /**
+     * Scores all the candidates
+     *
+     * @param own       our preferences, or null if the own utilities were set with {@link #setOwnUtility}
+     * @param opponents the opponent models
+     * @param pool      pool scoring parts of large blocks in parallel, or null to score on the calling thread
+     * @return the first candidate with the highest Nash product, or -1 if there are no candidates
+     */
+    public int score(CompiledEvaluator own, CompiledEvaluator[] opponents, ForkJoinPool pool) {
+        if (this.opponents.length < opponents.length) {
+            double[][] grown = new double[opponents.length][];
+            System.arraycopy(this.opponents, 0, grown, 0, this.opponents.length);
+            for (int k = this.opponents.length; k < opponents.length; k++) {
+                grown[k] = new double[this.candidates.length];
+            }
+            this.opponents = grown;
+        }
+
+        if (pool != null && this.size >= PARALLEL_THRESHOLD) {
+            pool.invoke(new Score(own, opponents, 0, this.size));
+        } else {
+            this.score(own, opponents, 0, this.size);
+        }
+
+        int best = -1;
+        for (int c = 0; c < this.size; c++) {
+            if (best < 0 || this.products[c] > this.products[best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scores the candidates [from, to)
+     */
+    private void score(CompiledEvaluator own, CompiledEvaluator[] opponents, int from, int to) {
+        if (own != null) {
+            for (int c = from; c < to; c++) {
+                this.own[c] = own.getUtility(this.candidates[c]);
+            }
+        }
+        System.arraycopy(this.own, from, this.products, from, to - from);
+        for (int k = 0; k < opponents.length; k++) {
+            double[] utilities = this.opponents[k];
+            CompiledEvaluator opponent = opponents[k];
+            for (int c = from; c < to; c++) {
+                utilities[c] = opponent.getUtility(this.candidates[c]);
+                this.products[c] *= utilities[c];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        int[][] candidates = new int[capacity][];
+        System.arraycopy(this.candidates, 0, candidates, 0, this.candidates.length);
+        for (int c = this.candidates.length; c < capacity; c++) {
+            candidates[c] = new int[this.numIssues];
+        }
+        this.candidates = candidates;
+        this.own = grow(this.own, capacity);
+        this.products = grow(this.products, capacity);
+        for (int k = 0; k < this.opponents.length; k++) {
+            this.opponents[k] = grow(this.opponents[k], capacity);
+        }
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        double[] grown = new double[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private class Score extends RecursiveAction {
+        private final CompiledEvaluator own;
+        private final CompiledEvaluator[] opponents;
+        private final int from;
+        private final int to;
+
+        Score(CompiledEvaluator own, CompiledEvaluator[] opponents, int from, int to) {
+            this.own = own;
+            this.opponents = opponents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= CHUNK_SIZE) {
+                score(this.own, this.opponents, this.from, this.to);
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new Score(this.own, this.opponents, this.from, mid),
+                    new Score(this.own, this.opponents, mid, this.to));
+        }
+    }
+}
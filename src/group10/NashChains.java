@@ -0,0 +1,152 @@
+package group10;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs several independent {@link NashAnnealer} chains on a {@link ForkJoinPool} and keeps the bid
+ * with the best energy. Each chain has its own random generator and its own starting bid: the
+ * first chain starts from the given bid, the others from a copy of it where every issue is
+ * randomized with probability one half. Each chain returns the best bid it visited, and all
+ * chains stop at a common wall-clock deadline.
+ */
+public class NashChains {
+    private final NashAnnealer[] chains;
+    private final int[][] states;
+    private final double[] energies;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor
+     *
+     * @param own        our utility
+     * @param num_chains number of chains, a single chain runs on the calling thread
+     * @param seed       seed of the random generators of the chains
+     * @param pool       pool running the chains
+     */
+    public NashChains(CompiledEvaluator own, int num_chains, long seed, ForkJoinPool pool) {
+        SplittableRandom random = new SplittableRandom(seed);
+        this.chains = new NashAnnealer[num_chains];
+        this.states = new int[num_chains][own.getNumberOfIssues()];
+        this.energies = new double[num_chains];
+        for (int c = 0; c < num_chains; c++) {
+            this.chains[c] = new NashAnnealer(own, random.split());
+        }
+        this.pool = pool;
+    }
+
+    public int getNumberOfChains() {
+        return this.chains.length;
+    }
+
+    public void setOpponent(CompiledEvaluator opponent) {
+        for (NashAnnealer chain : this.chains) {
+            chain.setOpponent(opponent);
+        }
+    }
+
+    public void setOpponents(CompiledEvaluator[] opponents) {
+        for (NashAnnealer chain : this.chains) {
+            chain.setOpponents(opponents);
+        }
+    }
+
+    public void setIterations(int iterations) {
+        for (NashAnnealer chain : this.chains) {
+            chain.setIterations(iterations);
+        }
+    }
+
+    /**
+     * Searches from the given bid with all the chains, running all their iterations
+     *
+     * @param start      the starting bid, holds the best bid found afterwards
+     * @param minUtility our minimum utility for a move to be taken
+     * @return the energy of the best bid, without noise
+     */
+    public double search(int[] start, double minUtility) {
+        return search(start, minUtility, false, 0L);
+    }
+
+    /**
+     * Searches from the given bid with all the chains, stopping at a deadline
+     *
+     * @param start      the starting bid, holds the best bid found afterwards
+     * @param minUtility our minimum utility for a move to be taken
+     * @param deadline   value of {@link System#nanoTime()} at which all chains stop
+     * @return the energy of the best bid, without noise
+     */
+    public double search(int[] start, double minUtility, long deadline) {
+        return search(start, minUtility, true, deadline);
+    }
+
+    private double search(int[] start, final double minUtility, final boolean timed, final long deadline) {
+        for (int c = 0; c < this.chains.length; c++) {
+            System.arraycopy(start, 0, this.states[c], 0, start.length);
+            if (c > 0) {
+                SplittableRandom random = this.chains[c].getRandom();
+                for (int i = 0; i < start.length; i++) {
+                    if (random.nextBoolean()) {
+                        this.states[c][i] = random.nextInt(this.chains[c].getNumberOfValues(i));
+                    }
+                }
+            }
+        }
+
+        if (this.chains.length == 1) {
+            this.energies[0] = anneal(0, minUtility, timed, deadline);
+        } else {
+            this.pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(chains.length);
+                    for (int c = 0; c < chains.length; c++) {
+                        tasks.add(new Chain(c, minUtility, timed, deadline));
+                    }
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        // The first chain starts above the minimum utility and only moves above it,
+        // the others only count when they ended above it too
+        int best = 0;
+        for (int c = 1; c < this.chains.length; c++) {
+            if (this.energies[c] > this.energies[best]
+                    && this.chains[c].getOwnUtility(this.states[c]) > minUtility) {
+                best = c;
+            }
+        }
+        System.arraycopy(this.states[best], 0, start, 0, start.length);
+        return this.energies[best];
+    }
+
+    private double anneal(int chain, double minUtility, boolean timed, long deadline) {
+        if (timed) {
+            return this.chains[chain].anneal(this.states[chain], minUtility, deadline);
+        }
+        return this.chains[chain].anneal(this.states[chain], minUtility);
+    }
+
+    private class Chain extends RecursiveAction {
+        private final int chain;
+        private final double minUtility;
+        private final boolean timed;
+        private final long deadline;
+
+        Chain(int chain, double minUtility, boolean timed, long deadline) {
+            this.chain = chain;
+            this.minUtility = minUtility;
+            this.timed = timed;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            energies[this.chain] = anneal(this.chain, this.minUtility, this.timed, this.deadline);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The outcomes of a domain sorted from the highest to the lowest utility, seen as two primitive
+ * columns: the utility and the packed bid (see {@link BidCodec#pack(int[])}). Finding the bid
+ * nearest to a utility is a binary search, and a {@link Bid} is only built for the outcomes that
+ * are asked for.
+ * <p>
+ * The columns are either held in memory or memory-mapped from a file written by
+ * {@link OutcomeIndexWriter}. In-memory indices are cached for the whole process, keyed by the
+ * domain and a fingerprint of the preferences (see {@link #key(AbstractUtilitySpace, BidCodec)}),
+ * so the sessions of a tournament on the same profile enumerate and sort the outcome space only
+ * once. Before an index from the cache or from a file is used, some of its utilities are checked
+ * against the utility space.
+ * <p>
+ * An in-memory index holds at most {@link #MAX_MEMORY_OUTCOMES} outcomes, 16 bytes each. Larger
+ * outcome spaces are sampled uniformly at random, the same way for the same preferences, so the
+ * index then holds a sorted sample of the outcomes instead of all of them. Only utility spaces
+ * read from a profile file can have an index file; an estimated space, like the one Agent10 builds
+ * from its user model, is always indexed in memory.
+ */
+public abstract class OutcomeIndex {
+    // Directory searched for index files, can be set with -Dgroup10.index.dir
+    public static final String INDEX_DIR = System.getProperty("group10.index.dir", "index");
+    public static final String INDEX_EXTENSION = ".oidx";
+    // Maximum number of outcomes of an in-memory index, can be set with -Dgroup10.index.max
+    public static final long MAX_MEMORY_OUTCOMES = Long.getLong("group10.index.max", 1L << 21);
+
+    // Number of indices kept in the cache
+    private static final int CACHE_SIZE = 8;
+    private static final Map<String, OutcomeIndex> cache = new LinkedHashMap<String, OutcomeIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, OutcomeIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // Number of outcomes evaluated to fingerprint a nonlinear utility space
+    private static final int FINGERPRINT_PROBES = 64;
+    // Number of stored utilities checked before an index is used
+    private static final int SPOT_CHECKS = 32;
+
+    protected final BidCodec codec;
+
+    protected OutcomeIndex(BidCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Returns the index of a utility space: memory-mapped when an index file was written for it,
+     * otherwise from the cache or built in memory.
+     *
+     * @param space the utility space to index
+     * @return the sorted outcome index, using the domain of the given utility space for its bids
+     */
+    public static OutcomeIndex open(AbstractUtilitySpace space) {
+        BidCodec codec = new BidCodec(space.getDomain());
+        String key = key(space, codec);
+        File file = new File(INDEX_DIR, key + INDEX_EXTENSION);
+        if (file.isFile()) {
+            try {
+                OutcomeIndex index = new MappedOutcomeIndex(file, codec);
+                if (matches(index, space)) {
+                    return index;
+                }
+                System.err.println(file + " does not match the utility space, it is not used");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return get(space, codec, key);
+    }
+
+    /**
+     * Returns the in-memory index of a utility space, from the cache when the same preferences
+     * were indexed before
+     *
+     * @param space the utility space to index
+     * @return the sorted outcome index, using the domain of the given utility space for its bids
+     */
+    public static OutcomeIndex get(AbstractUtilitySpace space) {
+        BidCodec codec = new BidCodec(space.getDomain());
+        return get(space, codec, key(space, codec));
+    }
+
+    private static OutcomeIndex get(AbstractUtilitySpace space, BidCodec codec, String key) {
+        Columns index;
+        synchronized (cache) {
+            index = (Columns) cache.get(key);
+        }
+        // Share the columns, but build the bids with the domain of this session
+        if (index != null && !matches(new Columns(index.utilities, index.outcomes, codec), space)) {
+            index = null;
+        }
+        if (index == null) {
+            index = (Columns) build(space, codec);
+            synchronized (cache) {
+                cache.put(key, index);
+            }
+        }
+        return new Columns(index.utilities, index.outcomes, codec);
+    }
+
+    /**
+     * Enumerates and sorts all the outcomes of a utility space in memory, or a uniform sample of
+     * {@link #MAX_MEMORY_OUTCOMES} outcomes when there are more
+     */
+    public static OutcomeIndex build(AbstractUtilitySpace space, BidCodec codec) {
+        long total = countOutcomes(codec);
+        boolean sample = total > MAX_MEMORY_OUTCOMES;
+        int size = (int) Math.min(total, MAX_MEMORY_OUTCOMES);
+        double[] utilities = new double[size];
+        long[] outcomes = new long[size];
+
+        int[] values = new int[codec.getNumberOfIssues()];
+        CompiledEvaluator evaluator = space instanceof AdditiveUtilitySpace
+                ? CompiledEvaluator.compile((AdditiveUtilitySpace) space, codec) : null;
+        // Seeded by the preferences, so the cache and later builds hold the same sample
+        Random random = sample ? new Random(fingerprint(space, codec)) : null;
+        for (int o = 0; o < size; o++) {
+            if (sample) {
+                codec.randomBid(random, values);
+            }
+            utilities[o] = evaluator != null ? evaluator.getUtility(values) : space.getUtility(codec.decode(values));
+            outcomes[o] = codec.pack(values);
+            if (!sample) {
+                next(values, codec);
+            }
+        }
+        sortDescending(utilities, outcomes, 0, size - 1);
+        return new Columns(utilities, outcomes, codec);
+    }
+
+    public BidCodec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     * @return the number of outcomes
+     */
+    public abstract int size();
+
+    /**
+     * @return the utility of the outcome at the given position, position 0 has the highest utility
+     */
+    public abstract double getUtility(int index);
+
+    /**
+     * @return the packed value indices of the outcome at the given position
+     */
+    public abstract long getOutcome(int index);
+
+    /**
+     * @return the value indices of the outcome at the given position
+     */
+    public int[] getValues(int index, int[] into) {
+        return this.codec.unpack(getOutcome(index), into);
+    }
+
+    public Bid getBid(int index) {
+        return this.codec.decode(getValues(index, new int[this.codec.getNumberOfIssues()]));
+    }
+
+    public BidDetails getBidDetails(int index) {
+        return new BidDetails(getBid(index), getUtility(index));
+    }
+
+    /**
+     * @return the position of the first outcome whose utility is at most the given utility, or
+     * {@link #size()} if there is none
+     */
+    public int firstAtMost(double utility) {
+        return firstAtMost(utility, 0, size());
+    }
+
+    /**
+     * @return the position of the first outcome whose utility is at most the given utility, searching
+     * only the positions [from, to), or to if there is none
+     */
+    public int firstAtMost(double utility, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getUtility(mid) > utility) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the position of the first outcome whose utility is below the given utility, or
+     * {@link #size()} if there is none
+     */
+    public int firstBelow(double utility) {
+        return firstBelow(utility, 0, size());
+    }
+
+    /**
+     * @return the position of the first outcome whose utility is below the given utility, searching
+     * only the positions [from, to), or to if there is none
+     */
+    public int firstBelow(double utility, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getUtility(mid) >= utility) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the position of the outcome whose utility is the nearest to the given utility
+     */
+    public int indexNearUtility(double utility) {
+        int index = firstAtMost(utility);
+        if (index == size()) {
+            return index - 1;
+        }
+        if (index > 0 && getUtility(index - 1) - utility < utility - getUtility(index)) {
+            return index - 1;
+        }
+        return index;
+    }
+
+    public BidDetails getBidNearUtility(double utility) {
+        return getBidDetails(indexNearUtility(utility));
+    }
+
+    /**
+     * Draws uniformly among the outcomes whose utility is strictly above the given utility. As the
+     * outcomes are sorted, these form a prefix found by a binary search, so this takes O(log n).
+     *
+     * @return the position of the drawn outcome, or -1 if no outcome is above the given utility
+     */
+    public int sampleAbove(double utility, Random random) {
+        int count = firstAtMost(utility);
+        if (count == 0) {
+            return -1;
+        }
+        return random.nextInt(count);
+    }
+
+    /**
+     * @return the outcomes whose utility is between the given bounds, inclusive
+     */
+    public List<BidDetails> getBidsInRange(double lowerBound, double upperBound) {
+        List<BidDetails> bids = new ArrayList<BidDetails>();
+        for (int i = firstAtMost(upperBound); i < size() && getUtility(i) >= lowerBound; i++) {
+            bids.add(getBidDetails(i));
+        }
+        return bids;
+    }
+
+    /**
+     * @return the key of the index of a utility space: the domain name, the number of values of
+     * each issue and the fingerprint of the preferences. Index files are named after this key.
+     */
+    public static String key(AbstractUtilitySpace space, BidCodec codec) {
+        StringBuilder key = new StringBuilder(codec.getDomain().getName().replaceAll("[^A-Za-z0-9_.-]", "_"));
+        key.append('-');
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            key.append(i == 0 ? "" : "x").append(codec.getNumberOfValues(i));
+        }
+        return key.append('-').append(Long.toHexString(fingerprint(space, codec))).toString();
+    }
+
+    /**
+     * Fingerprints the preferences of a utility space. For an additive space this hashes all its
+     * weights and evaluations, so two different profiles only collide by chance. Other spaces are
+     * fingerprinted by the utilities of a fixed set of outcomes, which can miss a difference, so
+     * indices are also checked with {@link #matches(OutcomeIndex, AbstractUtilitySpace)}.
+     */
+    public static long fingerprint(AbstractUtilitySpace space, BidCodec codec) {
+        long hash = 17;
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            hash = 31 * hash + codec.getNumberOfValues(i);
+        }
+        if (space instanceof AdditiveUtilitySpace) {
+            CompiledEvaluator evaluator = CompiledEvaluator.compile((AdditiveUtilitySpace) space, codec);
+            for (int i = 0; i < evaluator.getNumberOfIssues(); i++) {
+                hash = 31 * hash + Double.doubleToLongBits(evaluator.getWeight(i));
+                for (int v = 0; v < evaluator.getNumberOfValues(i); v++) {
+                    hash = 31 * hash + Double.doubleToLongBits(evaluator.getScore(i, v));
+                }
+            }
+            return hash;
+        }
+        Random random = new Random(hash);
+        int[] values = new int[codec.getNumberOfIssues()];
+        for (int p = 0; p < FINGERPRINT_PROBES; p++) {
+            hash = 31 * hash + Double.doubleToLongBits(space.getUtility(codec.decode(codec.randomBid(random, values))));
+        }
+        return hash;
+    }
+
+    /**
+     * Checks the utilities stored at some positions spread over an index against the utility space
+     *
+     * @return true if they all match
+     */
+    static boolean matches(OutcomeIndex index, AbstractUtilitySpace space) {
+        int size = index.size();
+        if (size == 0) {
+            return true;
+        }
+        int checks = Math.min(size, SPOT_CHECKS);
+        for (int c = 0; c < checks; c++) {
+            int position = (int) ((long) c * (size - 1) / Math.max(1, checks - 1));
+            if (Math.abs(index.getUtility(position) - space.getUtility(index.getBid(position))) > 1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of outcomes of the domain, or Long.MAX_VALUE if it does not fit in a long
+     */
+    static long countOutcomes(BidCodec codec) {
+        if (!codec.isPackable()) {
+            throw new IllegalArgumentException("The bids of " + codec.getDomain().getName() + " do not fit in a long");
+        }
+        long size = 1;
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            if (size > Long.MAX_VALUE / codec.getNumberOfValues(i)) {
+                return Long.MAX_VALUE;
+            }
+            size *= codec.getNumberOfValues(i);
+        }
+        return size;
+    }
+
+    /**
+     * Moves to the next outcome, counting with the last issue as lowest digit
+     */
+    static void next(int[] values, BidCodec codec) {
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (++values[i] < codec.getNumberOfValues(i)) {
+                return;
+            }
+            values[i] = 0;
+        }
+    }
+
+    /**
+     * Sorts the utilities from high to low, moving the outcomes along
+     */
+    static void sortDescending(double[] utilities, long[] outcomes, int low, int high) {
+        while (high - low > 16) {
+            // Median of three as pivot
+            int mid = (low + high) >>> 1;
+            if (utilities[mid] > utilities[low]) swap(utilities, outcomes, mid, low);
+            if (utilities[high] > utilities[low]) swap(utilities, outcomes, high, low);
+            if (utilities[high] > utilities[mid]) swap(utilities, outcomes, high, mid);
+            double pivot = utilities[mid];
+
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (utilities[i] > pivot) i++;
+                while (utilities[j] < pivot) j--;
+                if (i <= j) {
+                    swap(utilities, outcomes, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller part, loop on the larger one
+            if (j - low < high - i) {
+                sortDescending(utilities, outcomes, low, j);
+                low = i;
+            } else {
+                sortDescending(utilities, outcomes, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && utilities[j] > utilities[j - 1]; j--) {
+                swap(utilities, outcomes, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] utilities, long[] outcomes, int i, int j) {
+        double utility = utilities[i];
+        utilities[i] = utilities[j];
+        utilities[j] = utility;
+        long outcome = outcomes[i];
+        outcomes[i] = outcomes[j];
+        outcomes[j] = outcome;
+    }
+
+    /**
+     * Index held in two arrays on the heap
+     */
+    private static class Columns extends OutcomeIndex {
+        // Utility of each outcome, from high to low
+        private final double[] utilities;
+        // Packed value indices of each outcome
+        private final long[] outcomes;
+
+        Columns(double[] utilities, long[] outcomes, BidCodec codec) {
+            super(codec);
+            this.utilities = utilities;
+            this.outcomes = outcomes;
+        }
+
+        @Override
+        public int size() {
+            return this.utilities.length;
+        }
+
+        @Override
+        public double getUtility(int index) {
+            return this.utilities[index];
+        }
+
+        @Override
+        public long getOutcome(int index) {
+            return this.outcomes[index];
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package group10;
+
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.NonlinearUtilitySpace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Command line tool which precomputes the utility-sorted outcomes of a profile into an index file
+ * read by {@link MappedOutcomeIndex}. Agents opening the index of that profile with
+ * {@link OutcomeIndex#open(AbstractUtilitySpace)}, e.g. through TimeDependent_Offering, then map
+ * this file instead of enumerating the outcome space. A space estimated from a user model never
+ * matches a profile file, so Agent10 does not use these files.
+ * <p>
+ * Usage: {@code OutcomeIndexWriter <domain.xml> <profile.xml> [index directory] [max outcomes]}
+ * <p>
+ * The outcomes are sorted in chunks which are merged on disk, so the heap only holds one chunk.
+ * When the domain has more outcomes than the maximum (e.g. the nonlinear S-1NAGUNL domains have
+ * 10^10), that many outcomes are sampled uniformly at random instead.
+ */
+public class OutcomeIndexWriter {
+    // Default maximum number of records, 1GB of index
+    public static final long DEFAULT_MAX_OUTCOMES = 1L << 26;
+    // Records sorted in memory at once
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: OutcomeIndexWriter <domain.xml> <profile.xml> [index directory] [max outcomes]");
+            return;
+        }
+        File directory = new File(args.length > 2 ? args[2] : OutcomeIndex.INDEX_DIR);
+        long max_outcomes = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MAX_OUTCOMES;
+
+        Domain domain = new DomainImpl(args[0]);
+        AbstractUtilitySpace space = isNonlinear(args[1])
+                ? new NonlinearUtilitySpace(domain, args[1]) : new AdditiveUtilitySpace(domain, args[1]);
+
+        long start = System.currentTimeMillis();
+        File file = write(space, directory, max_outcomes);
+        System.out.println("Wrote " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Writes the index file of a utility space, named after its key
+     * (see {@link OutcomeIndex#key(AbstractUtilitySpace, BidCodec)})
+     *
+     * @param space       the utility space to index
+     * @param directory   directory of the index files
+     * @param maxOutcomes maximum number of records, outcomes are sampled above it
+     * @return the written file
+     */
+    public static File write(AbstractUtilitySpace space, File directory, long maxOutcomes) throws IOException {
+        BidCodec codec = new BidCodec(space.getDomain());
+        long fingerprint = OutcomeIndex.fingerprint(space, codec);
+        long total = OutcomeIndex.countOutcomes(codec);
+        boolean sample = total > maxOutcomes;
+        long count = Math.min(Math.min(total, maxOutcomes), Integer.MAX_VALUE);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        File file = new File(directory, OutcomeIndex.key(space, codec) + OutcomeIndex.INDEX_EXTENSION);
+
+        CompiledEvaluator evaluator = space instanceof AdditiveUtilitySpace
+                ? CompiledEvaluator.compile((AdditiveUtilitySpace) space, codec) : null;
+        Random random = new Random(fingerprint);
+        int[] values = new int[codec.getNumberOfIssues()];
+        double[] utilities = new double[(int) Math.min(count, CHUNK_SIZE)];
+        long[] outcomes = new long[utilities.length];
+        List<File> runs = new ArrayList<File>();
+
+        try {
+            // Sort the outcomes chunk by chunk into temporary runs
+            long written = 0;
+            while (written < count) {
+                int chunk = (int) Math.min(utilities.length, count - written);
+                for (int o = 0; o < chunk; o++) {
+                    if (sample) {
+                        codec.randomBid(random, values);
+                    }
+                    utilities[o] = evaluator != null ? evaluator.getUtility(values) : space.getUtility(codec.decode(values));
+                    outcomes[o] = codec.pack(values);
+                    if (!sample) {
+                        OutcomeIndex.next(values, codec);
+                    }
+                }
+                OutcomeIndex.sortDescending(utilities, outcomes, 0, chunk - 1);
+
+                File run = File.createTempFile("run", OutcomeIndex.INDEX_EXTENSION, directory);
+                runs.add(run);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+                try {
+                    for (int o = 0; o < chunk; o++) {
+                        out.writeDouble(utilities[o]);
+                        out.writeLong(outcomes[o]);
+                    }
+                } finally {
+                    out.close();
+                }
+                written += chunk;
+            }
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                out.writeInt(MappedOutcomeIndex.MAGIC);
+                out.writeInt(MappedOutcomeIndex.VERSION);
+                out.writeLong(fingerprint);
+                out.writeInt(codec.getNumberOfIssues());
+                for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+                    out.writeInt(codec.getNumberOfValues(i));
+                }
+                out.writeLong(count);
+                merge(runs, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Merges sorted runs into the output, always taking the record with the highest utility
+     */
+    private static void merge(List<File> runs, DataOutputStream out) throws IOException {
+        int num_runs = runs.size();
+        DataInputStream[] inputs = new DataInputStream[num_runs];
+        double[] utilities = new double[num_runs];
+        long[] outcomes = new long[num_runs];
+        boolean[] done = new boolean[num_runs];
+        try {
+            for (int r = 0; r < num_runs; r++) {
+                inputs[r] = new DataInputStream(new BufferedInputStream(new FileInputStream(runs.get(r)), 1 << 16));
+                done[r] = !read(inputs[r], r, utilities, outcomes);
+            }
+            // The number of runs is small, a linear scan for the best head is enough
+            while (true) {
+                int best = -1;
+                for (int r = 0; r < num_runs; r++) {
+                    if (!done[r] && (best == -1 || utilities[r] > utilities[best])) {
+                        best = r;
+                    }
+                }
+                if (best == -1) {
+                    return;
+                }
+                out.writeDouble(utilities[best]);
+                out.writeLong(outcomes[best]);
+                done[best] = !read(inputs[best], best, utilities, outcomes);
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    private static boolean read(DataInputStream input, int run, double[] utilities, long[] outcomes) throws IOException {
+        try {
+            utilities[run] = input.readDouble();
+            outcomes[run] = input.readLong();
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the profile declares a nonlinear utility space
+     */
+    private static boolean isNonlinear(String profile) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(profile));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains("<utility_space")) {
+                    return line.contains("nonlinear");
+                }
+            }
+            return false;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.ValueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates an additive utility space from a bid ranking by giving each value the sum of the
+ * positions of the ranked bids that contain it, from 0 for the worst bid, then normalizing the
+ * weights by the maximum values. This is the estimation of the agents' estimateUtilitySpace_a10.
+ * <p>
+ * The points are summed into a flat array of value indices in one pass over the ranking, and the
+ * utility space is only built at the end with a single call per value. Large rankings are split
+ * over a {@link ForkJoinPool}, every part summing into its own array. The points are whole
+ * numbers, so the parallel sums are exactly the sequential ones.
+ */
+public class RankEstimator {
+    // Rankings with at least this many bids are estimated in parallel by default
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+    // Number of bids summed by a single task
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    private RankEstimator() {
+    }
+
+    /**
+     * Estimates the utility space, in parallel on the common pool for large rankings
+     */
+    public static AdditiveUtilitySpace estimate(Domain domain, BidRanking ranking) {
+        List<Bid> bids = ranking.getBidOrder();
+        return estimate(domain, ranking, bids.size() >= PARALLEL_THRESHOLD ? ForkJoinPool.commonPool() : null);
+    }
+
+    /**
+     * Estimates the utility space
+     *
+     * @param domain  the domain of the ranked bids, all issues must be discrete
+     * @param ranking the bids from the lowest to the highest utility
+     * @param pool    pool summing parts of the ranking in parallel, or null to sum on the calling thread
+     * @return the estimated utility space
+     */
+    public static AdditiveUtilitySpace estimate(Domain domain, BidRanking ranking, ForkJoinPool pool) {
+        BidCodec codec = new BidCodec(domain);
+        List<Bid> bids = ranking.getBidOrder();
+
+        int num_scores = 0;
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            num_scores += codec.getNumberOfValues(i);
+        }
+        int[] offsets = new int[codec.getNumberOfIssues()];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = offsets[i - 1] + codec.getNumberOfValues(i - 1);
+        }
+
+        double[] points = pool == null
+                ? sum(bids, 0, bids.size(), codec, offsets, num_scores)
+                : pool.invoke(new Sum(bids, 0, bids.size(), codec, offsets, num_scores));
+
+        AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
+        List<Issue> issues = domain.getIssues();
+        for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+            for (int v = 0; v < codec.getNumberOfValues(i); v++) {
+                factory.setUtility(issues.get(i), (ValueDiscrete) codec.getValue(i, v), points[offsets[i] + v]);
+            }
+        }
+        factory.normalizeWeightsByMaxValues();
+        return factory.getUtilitySpace();
+    }
+
+    /**
+     * Sums the points of the bids at positions [from, to) of the ranking
+     */
+    private static double[] sum(List<Bid> bids, int from, int to, BidCodec codec, int[] offsets, int num_scores) {
+        double[] points = new double[num_scores];
+        int[] values = new int[offsets.length];
+        for (int b = from; b < to; b++) {
+            codec.encode(bids.get(b), values);
+            for (int i = 0; i < values.length; i++) {
+                points[offsets[i] + values[i]] += b;
+            }
+        }
+        return points;
+    }
+
+    private static class Sum extends RecursiveTask<double[]> {
+        private final List<Bid> bids;
+        private final int from;
+        private final int to;
+        private final BidCodec codec;
+        private final int[] offsets;
+        private final int numScores;
+
+        Sum(List<Bid> bids, int from, int to, BidCodec codec, int[] offsets, int numScores) {
+            this.bids = bids;
+            this.from = from;
+            this.to = to;
+            this.codec = codec;
+            this.offsets = offsets;
+            this.numScores = numScores;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (this.to - this.from <= CHUNK_SIZE) {
+                return sum(this.bids, this.from, this.to, this.codec, this.offsets, this.numScores);
+            }
+            int mid = (this.from + this.to) >>> 1;
+            Sum high = new Sum(this.bids, mid, this.to, this.codec, this.offsets, this.numScores);
+            high.fork();
+            double[] points = new Sum(this.bids, this.from, mid, this.codec, this.offsets, this.numScores).compute();
+            double[] high_points = high.join();
+            for (int s = 0; s < points.length; s++) {
+                points[s] += high_points[s];
+            }
+            return points;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package group10;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.ValueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fits an additive utility space to a bid ranking. Each value gets a nonnegative score, the
+ * utility of a bid being the sum of the scores of its values, and every two neighbours of the
+ * ranking give a constraint: the better bid must score at least a margin more than the worse one.
+ * The scores minimize
+ * <pre>
+ *     sum_k max(0, margin - (u(better_k) - u(worse_k)))^2
+ *         + (u(best) - high)^2 + (u(worst) - low)^2 + regularization * |x|^2
+ * </pre>
+ * where high and low are the utilities of the best and the worst ranked bids given by the ranking.
+ * <p>
+ * A constraint only involves the values in which its two bids differ, so the constraints are
+ * stored as sparse rows. The problem is solved by accelerated projected gradient descent, each
+ * iteration being a pass over the stored rows, until a deadline. The scores are then turned into
+ * issue weights and value evaluations by normalizing each issue by its best value.
+ */
+public class RankFitter {
+    // Maximum number of gradient iterations when the deadline is not reached first
+    private static final int MAX_ITERATIONS = 20000;
+    // Number of random bids used to compare an estimate with the real preferences
+    private static final int ACCURACY_SAMPLES = 1000;
+
+    private final Domain domain;
+    private final BidCodec codec;
+    // Start of the scores of each issue
+    private final int[] offsets;
+    private final int numScores;
+
+    // The constraints in compressed rows: the row of constraint k is at [rowStart[k], rowStart[k + 1])
+    // and adds the score of each column times its sign
+    private final int[] rowStart;
+    private final int[] columns;
+    private final byte[] signs;
+    // The best and worst ranked bids, their scores should be the given utilities
+    private final int[] best;
+    private final int[] worst;
+    private final double highUtility;
+    private final double lowUtility;
+    private final double margin;
+    private double regularization = 1e-4;
+
+    /**
+     * Constructor, builds the constraints of the ranking
+     *
+     * @param domain  the domain of the ranked bids, all issues must be discrete
+     * @param ranking the bids from the lowest to the highest utility
+     */
+    public RankFitter(Domain domain, BidRanking ranking) {
+        this.domain = domain;
+        this.codec = new BidCodec(domain);
+        int num_issues = this.codec.getNumberOfIssues();
+        this.offsets = new int[num_issues];
+        int num_scores = 0;
+        for (int i = 0; i < num_issues; i++) {
+            this.offsets[i] = num_scores;
+            num_scores += this.codec.getNumberOfValues(i);
+        }
+        this.numScores = num_scores;
+
+        List<Bid> bids = ranking.getBidOrder();
+        int num_constraints = Math.max(0, bids.size() - 1);
+        this.rowStart = new int[num_constraints + 1];
+        int[] columns = new int[2 * num_issues * num_constraints];
+        byte[] signs = new byte[columns.length];
+
+        int[] worse = new int[num_issues];
+        int[] better = new int[num_issues];
+        if (!bids.isEmpty()) {
+            this.codec.encode(bids.get(0), better);
+        }
+        int size = 0;
+        for (int k = 0; k < num_constraints; k++) {
+            int[] swap = worse;
+            worse = better;
+            better = swap;
+            this.codec.encode(bids.get(k + 1), better);
+            // Only the issues where the two bids differ remain in the difference
+            for (int i = 0; i < num_issues; i++) {
+                if (better[i] != worse[i]) {
+                    columns[size] = this.offsets[i] + better[i];
+                    signs[size++] = 1;
+                    columns[size] = this.offsets[i] + worse[i];
+                    signs[size++] = -1;
+                }
+            }
+            this.rowStart[k + 1] = size;
+        }
+        this.columns = columns;
+        this.signs = signs;
+
+        this.best = bids.isEmpty() ? null : this.codec.encode(bids.get(bids.size() - 1));
+        this.worst = bids.isEmpty() ? null : this.codec.encode(bids.get(0));
+        this.highUtility = ranking.getHighUtility();
+        this.lowUtility = ranking.getLowUtility();
+        // Half of the gap between neighbours if the ranked bids were evenly spread
+        this.margin = num_constraints == 0 ? 0.0 : 0.5 * (this.highUtility - this.lowUtility) / num_constraints;
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * Fits the scores and builds the utility space
+     *
+     * @param deadline value of {@link System#nanoTime()} at which to stop fitting
+     */
+    public AdditiveUtilitySpace estimate(long deadline) {
+        return toUtilitySpace(fit(deadline));
+    }
+
+    /**
+     * Fits the scores of the values
+     *
+     * @param deadline value of {@link System#nanoTime()} at which to stop fitting
+     * @return the score of each value, the values of issue i starting at the sum of the numbers of
+     * values of the issues before it
+     */
+    public double[] fit(long deadline) {
+        int num_issues = this.offsets.length;
+        double[] x = new double[this.numScores];
+        double[] y = new double[this.numScores];
+        double[] gradient = new double[this.numScores];
+
+        // Start with every bid worth the middle of the ranked utilities
+        double start = 0.5 * (this.highUtility + this.lowUtility) / Math.max(1, num_issues);
+        for (int s = 0; s < this.numScores; s++) {
+            x[s] = start;
+            y[s] = start;
+        }
+
+        double step = 1.0 / lipschitz();
+        double t = 1.0;
+        for (int n = 0; n < MAX_ITERATIONS && System.nanoTime() - deadline < 0; n++) {
+            gradient(y, gradient);
+
+            // Projected step from y, then extrapolate along the last move
+            double next_t = (1.0 + Math.sqrt(1.0 + 4.0 * t * t)) / 2.0;
+            double momentum = (t - 1.0) / next_t;
+            for (int s = 0; s < this.numScores; s++) {
+                double next = Math.max(0.0, y[s] - step * gradient[s]);
+                y[s] = next + momentum * (next - x[s]);
+                x[s] = next;
+            }
+            t = next_t;
+        }
+        return x;
+    }
+
+    /**
+     * Computes the gradient of the objective at the given scores
+     */
+    private void gradient(double[] x, double[] gradient) {
+        for (int s = 0; s < this.numScores; s++) {
+            gradient[s] = 2.0 * this.regularization * x[s];
+        }
+        for (int k = 0; k + 1 < this.rowStart.length; k++) {
+            double difference = 0.0;
+            for (int e = this.rowStart[k]; e < this.rowStart[k + 1]; e++) {
+                difference += this.signs[e] * x[this.columns[e]];
+            }
+            double violation = this.margin - difference;
+            if (violation > 0) {
+                for (int e = this.rowStart[k]; e < this.rowStart[k + 1]; e++) {
+                    gradient[this.columns[e]] -= 2.0 * violation * this.signs[e];
+                }
+            }
+        }
+        if (this.best != null) {
+            anchor(x, gradient, this.best, this.highUtility);
+            anchor(x, gradient, this.worst, this.lowUtility);
+        }
+    }
+
+    private void anchor(double[] x, double[] gradient, int[] bid, double utility) {
+        double error = score(x, bid) - utility;
+        for (int i = 0; i < bid.length; i++) {
+            gradient[this.offsets[i] + bid[i]] += 2.0 * error;
+        }
+    }
+
+    /**
+     * @return an upper bound of the Lipschitz constant of the gradient, giving a safe step size
+     */
+    private double lipschitz() {
+        // |D|^2 <= (largest column sum) * (largest row sum) for the constraint matrix D
+        int[] column_counts = new int[this.numScores];
+        int max_row = 0;
+        for (int k = 0; k + 1 < this.rowStart.length; k++) {
+            max_row = Math.max(max_row, this.rowStart[k + 1] - this.rowStart[k]);
+            for (int e = this.rowStart[k]; e < this.rowStart[k + 1]; e++) {
+                column_counts[this.columns[e]]++;
+            }
+        }
+        int max_column = 0;
+        for (int count : column_counts) {
+            max_column = Math.max(max_column, count);
+        }
+        int num_issues = this.offsets.length;
+        return 2.0 * ((double) max_column * max_row + 2.0 * num_issues) + 2.0 * this.regularization;
+    }
+
+    private double score(double[] x, int[] bid) {
+        double utility = 0.0;
+        for (int i = 0; i < bid.length; i++) {
+            utility += x[this.offsets[i] + bid[i]];
+        }
+        return utility;
+    }
+
+    /**
+     * Turns the scores into weights proportional to the best score of each issue, and evaluations
+     * relative to that best score
+     */
+    public AdditiveUtilitySpace toUtilitySpace(double[] x) {
+        AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(this.domain);
+        List<Issue> issues = this.domain.getIssues();
+        for (int i = 0; i < this.offsets.length; i++) {
+            double max = 0.0;
+            for (int v = 0; v < this.codec.getNumberOfValues(i); v++) {
+                max = Math.max(max, x[this.offsets[i] + v]);
+            }
+            for (int v = 0; v < this.codec.getNumberOfValues(i); v++) {
+                // An issue without any score gets a tiny flat one, so its weight can be normalized
+                double score = max > 0 ? x[this.offsets[i] + v] : 1e-9;
+                factory.setUtility(issues.get(i), (ValueDiscrete) this.codec.getValue(i, v), score);
+            }
+        }
+        factory.normalizeWeightsByMaxValues();
+        return factory.getUtilitySpace();
+    }
+
+    /**
+     * Measures how well a utility space agrees with an order of bids
+     *
+     * @param space the utility space to check
+     * @param bids  bids from the lowest to the highest utility
+     * @return the fraction of the pairs of bids which the utility space orders strictly the same way
+     */
+    public static double agreement(AbstractUtilitySpace space, List<Bid> bids) {
+        int size = bids.size();
+        if (size < 2) {
+            return 1.0;
+        }
+        double[] utilities = new double[size];
+        for (int b = 0; b < size; b++) {
+            utilities[b] = space.getUtility(bids.get(b));
+        }
+        long disagreements = countNotIncreasing(utilities, new double[size], 0, size);
+        return 1.0 - disagreements / (size * (size - 1) / 2.0);
+    }
+
+    /**
+     * Measures how well an estimate agrees with the real preferences on random bids. Pairs of bids
+     * with the same real utility have no order to agree with, so they are not counted.
+     *
+     * @return the fraction of the pairs of bids with different real utilities which the estimate
+     * orders strictly the same way
+     */
+    public static double accuracy(AbstractUtilitySpace estimate, final AbstractUtilitySpace real, Random random) {
+        BidCodec codec = new BidCodec(real.getDomain());
+        int[] values = new int[codec.getNumberOfIssues()];
+        List<Bid> bids = new ArrayList<Bid>(ACCURACY_SAMPLES);
+        for (int b = 0; b < ACCURACY_SAMPLES; b++) {
+            bids.add(codec.decode(codec.randomBid(random, values)));
+        }
+        final Map<Bid, Double> real_utilities = new HashMap<Bid, Double>();
+        for (Bid bid : bids) {
+            real_utilities.put(bid, real.getUtility(bid));
+        }
+        Collections.sort(bids, new Comparator<Bid>() {
+            @Override
+            public int compare(Bid bid1, Bid bid2) {
+                return Double.compare(real_utilities.get(bid1), real_utilities.get(bid2));
+            }
+        });
+
+        int size = bids.size();
+        double[] utilities = new double[size];
+        for (int b = 0; b < size; b++) {
+            utilities[b] = estimate.getUtility(bids.get(b));
+        }
+        double[] buffer = new double[size];
+        long pairs = size * (size - 1L) / 2;
+        // All the pairs, less the pairs within each group of ties
+        long disagreements = countNotIncreasing(utilities.clone(), buffer, 0, size);
+        for (int from = 0; from < size; ) {
+            int to = from + 1;
+            while (to < size && real_utilities.get(bids.get(to)).equals(real_utilities.get(bids.get(from)))) {
+                to++;
+            }
+            pairs -= (to - from) * (to - from - 1L) / 2;
+            disagreements -= countNotIncreasing(utilities, buffer, from, to);
+            from = to;
+        }
+        return pairs == 0 ? 1.0 : 1.0 - disagreements / (double) pairs;
+    }
+
+    /**
+     * Sorts the utilities in [from, to) by merging, counting the pairs i < j with utility i >= utility j
+     */
+    private static long countNotIncreasing(double[] utilities, double[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return 0;
+        }
+        int mid = (from + to) >>> 1;
+        long count = countNotIncreasing(utilities, buffer, from, mid) + countNotIncreasing(utilities, buffer, mid, to);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            if (utilities[left] < utilities[right]) {
+                buffer[out++] = utilities[left++];
+            } else {
+                // Every remaining left utility is at least this one
+                count += mid - left;
+                buffer[out++] = utilities[right++];
+            }
+        }
+        while (left < mid) {
+            buffer[out++] = utilities[left++];
+        }
+        while (right < to) {
+            buffer[out++] = utilities[right++];
+        }
+        System.arraycopy(buffer, from, utilities, from, to - from);
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+package group10;
+
+import java.util.Random;
+
+/**
+ * Draws random bids whose utility is at least a threshold, without rejecting any draw. The issues
+ * are visited in a random order and each one only picks among the values that still allow the
+ * threshold to be reached, given the best contributions of the issues that are left. Every draw
+ * therefore ends with an acceptable bid after a single pass over the values.
+ * <p>
+ * The bids are not uniform over all acceptable bids: within an issue the allowed values are
+ * equally likely, and the random issue order spreads the constraint over the issues.
+ */
+public class ThresholdBidSampler {
+    private final CompiledEvaluator evaluator;
+    // Best contribution of each issue
+    private final double[] maxContributions;
+    private final double maxUtility;
+    // Order in which the issues are visited, shuffled on every draw
+    private final int[] order;
+
+    /**
+     * Constructor
+     *
+     * @param evaluator the utility of the bids, its weights and scores must not change afterwards
+     */
+    public ThresholdBidSampler(CompiledEvaluator evaluator) {
+        this.evaluator = evaluator;
+        int num_issues = evaluator.getNumberOfIssues();
+        this.maxContributions = new double[num_issues];
+        this.order = new int[num_issues];
+
+        double max_utility = 0.0;
+        for (int i = 0; i < num_issues; i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < evaluator.getNumberOfValues(i); v++) {
+                max = Math.max(max, evaluator.getContribution(i, v));
+            }
+            this.maxContributions[i] = max;
+            max_utility += max;
+            this.order[i] = i;
+        }
+        this.maxUtility = max_utility;
+    }
+
+    /**
+     * @return the highest utility a bid can have
+     */
+    public double getMaxUtility() {
+        return this.maxUtility;
+    }
+
+    /**
+     * @return true if some bid has a utility of at least the threshold
+     */
+    public boolean isFeasible(double threshold) {
+        return this.maxUtility >= threshold;
+    }
+
+    /**
+     * Draws a bid whose utility is at least the threshold
+     *
+     * @param threshold the minimum utility of the bid
+     * @param random    the random generator
+     * @param into      array receiving the value index of each issue
+     * @return false, leaving the array unchanged, if no bid reaches the threshold
+     */
+    public boolean sample(double threshold, Random random, int[] into) {
+        if (!isFeasible(threshold)) {
+            return false;
+        }
+        int num_issues = this.order.length;
+        for (int k = num_issues - 1; k > 0; k--) {
+            int j = random.nextInt(k + 1);
+            int issue = this.order[k];
+            this.order[k] = this.order[j];
+            this.order[j] = issue;
+        }
+
+        // Best utility the issues left can still add
+        double remaining = this.maxUtility;
+        double utility = 0.0;
+        for (int k = 0; k < num_issues; k++) {
+            int issue = this.order[k];
+            remaining -= this.maxContributions[issue];
+
+            // Pick uniformly among the allowed values, counting them as they are found
+            int chosen = -1;
+            int allowed = 0;
+            for (int v = 0; v < this.evaluator.getNumberOfValues(issue); v++) {
+                double contribution = this.evaluator.getContribution(issue, v);
+                if (utility + contribution + remaining >= threshold
+                        || contribution == this.maxContributions[issue]) {
+                    allowed++;
+                    if (random.nextInt(allowed) == 0) {
+                        chosen = v;
+                    }
+                }
+            }
+            into[issue] = chosen;
+            utility += this.evaluator.getContribution(issue, chosen);
+        }
+        return true;
+    }
+}
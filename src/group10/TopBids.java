@@ -0,0 +1,187 @@
+package group10;
+
+import genius.core.Bid;
+
+import java.util.Random;
+
+/**
+ * Keeps the bids with the highest scores, up to a capacity. The bids are stored in slots, and two
+ * binary heaps of slots give the worst bid, to be replaced by a better one, and the best bids.
+ * Each heap knows the position of every slot, so a score can be changed in place. Offering a bid
+ * and changing a score take O(log capacity).
+ */
+public class TopBids {
+    private final Bid[] bids;
+    private final double[] scores;
+    private int size;
+
+    // Min and max heaps of slots, with the position of each slot in them
+    private final int[] minHeap;
+    private final int[] minPosition;
+    private final int[] maxHeap;
+    private final int[] maxPosition;
+    // Candidates of the best bids
+    private final int[] candidates;
+
+    public TopBids(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.bids = new Bid[capacity];
+        this.scores = new double[capacity];
+        this.minHeap = new int[capacity];
+        this.minPosition = new int[capacity];
+        this.maxHeap = new int[capacity];
+        this.maxPosition = new int[capacity];
+        this.candidates = new int[capacity];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.bids.length;
+    }
+
+    public boolean isFull() {
+        return this.size == this.bids.length;
+    }
+
+    public Bid getBid(int slot) {
+        return this.bids[slot];
+    }
+
+    public double getScore(int slot) {
+        return this.scores[slot];
+    }
+
+    /**
+     * @return the lowest score kept, the one a new bid has to beat once full
+     */
+    public double getMinScore() {
+        return this.scores[this.minHeap[0]];
+    }
+
+    /**
+     * Keeps a bid if there is room, or if it scores more than the worst bid, which it replaces
+     *
+     * @return true if the bid is kept
+     */
+    public boolean offer(Bid bid, double score) {
+        if (this.size < this.bids.length) {
+            int slot = this.size++;
+            this.bids[slot] = bid;
+            this.scores[slot] = score;
+            this.minHeap[slot] = slot;
+            this.minPosition[slot] = slot;
+            this.maxHeap[slot] = slot;
+            this.maxPosition[slot] = slot;
+            this.siftUp(slot, true);
+            this.siftUp(slot, false);
+            return true;
+        }
+        if (score <= this.getMinScore()) {
+            return false;
+        }
+        int slot = this.minHeap[0];
+        this.bids[slot] = bid;
+        this.setScore(slot, score);
+        return true;
+    }
+
+    /**
+     * Changes the score of the bid in a slot, the slots of the bids stay the same
+     */
+    public void setScore(int slot, double score) {
+        this.scores[slot] = score;
+        this.siftUp(this.minPosition[slot], true);
+        this.siftDown(this.minPosition[slot], true);
+        this.siftUp(this.maxPosition[slot], false);
+        this.siftDown(this.maxPosition[slot], false);
+    }
+
+    /**
+     * @param rank 0 for the best bid, 1 for the second best, ...
+     * @return the bid at that rank. The bids of rank r are within the first r + 1 levels of the max
+     * heap, so only those are searched.
+     */
+    public Bid getBest(int rank) {
+        if (rank < 0 || rank >= this.size) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + this.size + " bids");
+        }
+        int count = rank >= 30 ? this.size : Math.min(this.size, (1 << (rank + 1)) - 1);
+        System.arraycopy(this.maxHeap, 0, this.candidates, 0, count);
+        // Selection of the best candidates up to the rank
+        for (int r = 0; r <= rank; r++) {
+            int best = r;
+            for (int c = r + 1; c < count; c++) {
+                if (this.scores[this.candidates[c]] > this.scores[this.candidates[best]]) {
+                    best = c;
+                }
+            }
+            int swap = this.candidates[r];
+            this.candidates[r] = this.candidates[best];
+            this.candidates[best] = swap;
+        }
+        return this.bids[this.candidates[rank]];
+    }
+
+    /**
+     * @return one of the given number of best bids, uniformly
+     */
+    public Bid sampleBest(int count, Random random) {
+        return this.getBest(random.nextInt(Math.min(count, this.size)));
+    }
+
+    /**
+     * @return true if slot a should be above slot b in the heap
+     */
+    private boolean above(int a, int b, boolean min) {
+        return min ? this.scores[a] < this.scores[b] : this.scores[a] > this.scores[b];
+    }
+
+    private void siftUp(int position, boolean min) {
+        int[] heap = min ? this.minHeap : this.maxHeap;
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!this.above(slot, heap[parent], min)) {
+                break;
+            }
+            this.place(heap[parent], position, min);
+            position = parent;
+        }
+        this.place(slot, position, min);
+    }
+
+    private void siftDown(int position, boolean min) {
+        int[] heap = min ? this.minHeap : this.maxHeap;
+        int slot = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= this.size) {
+                break;
+            }
+            if (child + 1 < this.size && this.above(heap[child + 1], heap[child], min)) {
+                child++;
+            }
+            if (!this.above(heap[child], slot, min)) {
+                break;
+            }
+            this.place(heap[child], position, min);
+            position = child;
+        }
+        this.place(slot, position, min);
+    }
+
+    private void place(int slot, int position, boolean min) {
+        if (min) {
+            this.minHeap[position] = slot;
+            this.minPosition[slot] = position;
+        } else {
+            this.maxHeap[position] = slot;
+            this.maxPosition[slot] = position;
+        }
+    }
+}